@@ -0,0 +1,432 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import components.map.Map;
+import components.map.Map2;
+import components.map.MapSecondary;
+
+/**
+ * Measures the time per operation of {@code add}, {@code hasKey},
+ * {@code value}, {@code remove}, {@code removeAny} and iteration for
+ * {@code Map4} with hash tables of fixed size 101 and 1009 and with a
+ * resizing one, compared with {@code Map2} and {@code java.util.HashMap}, over
+ * sequential, random and colliding keys. Results are written as JSON, one
+ * object per implementation, key distribution and operation, so that runs can
+ * be compared with each other.
+ * <p>
+ * Usage: {@code MapBenchmark [numberOfKeys [outputFile]]}; the defaults are
+ * {@value #DEFAULT_KEYS} keys and {@value #DEFAULT_OUTPUT}.
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ */
+public final class MapBenchmark {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MapBenchmark() {
+    }
+
+    /**
+     * Default number of keys in each map.
+     */
+    private static final int DEFAULT_KEYS = 10000;
+
+    /**
+     * Default name of the results file.
+     */
+    private static final String DEFAULT_OUTPUT = "map-benchmark.json";
+
+    /**
+     * Number of untimed runs of each measurement, to let the JIT compile the
+     * code measured.
+     */
+    private static final int WARMUP_ITERATIONS = 5;
+
+    /**
+     * Number of timed runs of each measurement.
+     */
+    private static final int MEASURED_ITERATIONS = 10;
+
+    /**
+     * Length of the random keys.
+     */
+    private static final int RANDOM_KEY_LENGTH = 8;
+
+    /**
+     * Seed of the random keys, so every run uses the same ones.
+     */
+    private static final long SEED = 2231;
+
+    /**
+     * Accumulates results of the measured operations, so the JIT cannot
+     * discard them as unused.
+     */
+    private static volatile int sink;
+
+    /**
+     * Simple implementation of {@code Map.Pair} for {@code HashMapAdapter}.
+     */
+    private static final class StringPair implements Map.Pair<String, String> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The value.
+         */
+        private final String value;
+
+        /**
+         * Constructor from key and value.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        StringPair(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return this.key;
+        }
+
+        @Override
+        public String value() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * {@code Map} on top of {@code java.util.HashMap}, so it can be measured
+     * through the same interface as the other implementations.
+     */
+    public static final class HashMapAdapter extends MapSecondary<String, String> {
+
+        /**
+         * The underlying map.
+         */
+        private HashMap<String, String> rep = new HashMap<>();
+
+        @Override
+        public Map<String, String> newInstance() {
+            return new HashMapAdapter();
+        }
+
+        @Override
+        public void clear() {
+            this.rep = new HashMap<>();
+        }
+
+        @Override
+        public void transferFrom(Map<String, String> source) {
+            assert source instanceof HashMapAdapter : ""
+                    + "Violation of: source is of dynamic type HashMapAdapter";
+            HashMapAdapter localSource = (HashMapAdapter) source;
+            this.rep = localSource.rep;
+            localSource.rep = new HashMap<>();
+        }
+
+        @Override
+        public void add(String key, String value) {
+            this.rep.put(key, value);
+        }
+
+        @Override
+        public Pair<String, String> remove(String key) {
+            return new StringPair(key, this.rep.remove(key));
+        }
+
+        @Override
+        public Pair<String, String> removeAny() {
+            Iterator<java.util.Map.Entry<String, String>> it = this.rep.entrySet()
+                    .iterator();
+            java.util.Map.Entry<String, String> entry = it.next();
+            it.remove();
+            return new StringPair(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public String value(String key) {
+            return this.rep.get(key);
+        }
+
+        @Override
+        public boolean hasKey(String key) {
+            return this.rep.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return this.rep.size();
+        }
+
+        @Override
+        public Iterator<Pair<String, String>> iterator() {
+            final Iterator<java.util.Map.Entry<String, String>> it = this.rep
+                    .entrySet().iterator();
+            return new Iterator<Pair<String, String>>() {
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Pair<String, String> next() {
+                    if (!it.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    java.util.Map.Entry<String, String> entry = it.next();
+                    return new StringPair(entry.getKey(), entry.getValue());
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Returns {@code n} different keys {@code "0"}, {@code "1"}, ...
+     *
+     * @param n
+     *            the number of keys
+     * @return the keys
+     */
+    private static String[] sequentialKeys(int n) {
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = Integer.toString(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Returns {@code n} different random lowercase keys.
+     *
+     * @param n
+     *            the number of keys
+     * @return the keys
+     */
+    private static String[] randomKeys(int n) {
+        Random random = new Random(SEED);
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        String[] keys = new String[n];
+        int count = 0;
+        while (count < n) {
+            StringBuilder key = new StringBuilder();
+            for (int j = 0; j < RANDOM_KEY_LENGTH; j++) {
+                key.append((char) ('a' + random.nextInt('z' - 'a' + 1)));
+            }
+            if (seen.add(key.toString())) {
+                keys[count] = key.toString();
+                count++;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns {@code n} different keys that all have the same hash code: each
+     * is a sequence of the blocks "Aa" and "BB", which have the same hash
+     * code, spelling out the binary digits of its index.
+     *
+     * @param n
+     *            the number of keys
+     * @return the keys
+     */
+    private static String[] collidingKeys(int n) {
+        int blocks = 1;
+        while ((1 << blocks) < n) {
+            blocks++;
+        }
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int b = blocks - 1; b >= 0; b--) {
+                if (((i >> b) & 1) == 0) {
+                    key.append("Aa");
+                } else {
+                    key.append("BB");
+                }
+            }
+            keys[i] = key.toString();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns a map made by {@code factory} holding every key of {@code keys},
+     * each associated with itself.
+     *
+     * @param factory
+     *            makes the empty map
+     * @param keys
+     *            the keys
+     * @return the filled map
+     */
+    private static Map<String, String> filled(Supplier<Map<String, String>> factory,
+            String[] keys) {
+        Map<String, String> map = factory.get();
+        for (String key : keys) {
+            map.add(key, key);
+        }
+        return map;
+    }
+
+    /**
+     * Runs one measurement of {@code operation} on a map made by
+     * {@code factory} and returns the time it took in nanoseconds.
+     *
+     * @param operation
+     *            the name of the operation
+     * @param factory
+     *            makes the empty map
+     * @param keys
+     *            the keys
+     * @return the elapsed time
+     */
+    private static long runOnce(String operation, Supplier<Map<String, String>> factory,
+            String[] keys) {
+        Map<String, String> map;
+        if (operation.equals("add")) {
+            map = factory.get();
+        } else {
+            map = filled(factory, keys);
+        }
+        int result = 0;
+        long start = System.nanoTime();
+        switch (operation) {
+            case "add":
+                for (String key : keys) {
+                    map.add(key, key);
+                }
+                break;
+            case "hasKey":
+                for (String key : keys) {
+                    if (map.hasKey(key)) {
+                        result++;
+                    }
+                }
+                break;
+            case "value":
+                for (String key : keys) {
+                    result += map.value(key).length();
+                }
+                break;
+            case "remove":
+                for (String key : keys) {
+                    result += map.remove(key).value().length();
+                }
+                break;
+            case "removeAny":
+                while (map.size() > 0) {
+                    result += map.removeAny().key().length();
+                }
+                break;
+            default:
+                for (Map.Pair<String, String> pair : map) {
+                    result += pair.key().length();
+                }
+                break;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        return elapsed;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: number of keys and output file
+     */
+    public static void main(String[] args) {
+        int n = DEFAULT_KEYS;
+        if (args.length > 0) {
+            n = Integer.parseInt(args[0]);
+        }
+        String outputFile = DEFAULT_OUTPUT;
+        if (args.length > 1) {
+            outputFile = args[1];
+        }
+
+        String[] implementationNames = { "Map4(101)", "Map4(1009)", "Map4(dynamic)",
+                "Map2", "HashMap" };
+        List<Supplier<Map<String, String>>> implementations = new ArrayList<>();
+        /*
+         * An unbounded load factor keeps the hash table at its initial size
+         */
+        implementations.add(() -> new Map4<String, String>(101, Double.MAX_VALUE));
+        implementations.add(() -> new Map4<String, String>(1009, Double.MAX_VALUE));
+        implementations.add(() -> new Map4<String, String>());
+        implementations.add(() -> new Map2<String, String>());
+        implementations.add(() -> new HashMapAdapter());
+
+        String[] distributionNames = { "sequential", "random", "colliding" };
+        String[][] distributions = { sequentialKeys(n), randomKeys(n),
+                collidingKeys(n) };
+
+        String[] operations = { "add", "hasKey", "value", "remove", "removeAny",
+                "iterate" };
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(outputFile))) {
+            out.println("[");
+            boolean first = true;
+            for (int i = 0; i < implementations.size(); i++) {
+                for (int d = 0; d < distributions.length; d++) {
+                    for (String operation : operations) {
+                        for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+                            runOnce(operation, implementations.get(i), distributions[d]);
+                        }
+                        long total = 0;
+                        long best = Long.MAX_VALUE;
+                        for (int m = 0; m < MEASURED_ITERATIONS; m++) {
+                            long elapsed = runOnce(operation, implementations.get(i),
+                                    distributions[d]);
+                            total += elapsed;
+                            best = Math.min(best, elapsed);
+                        }
+                        double meanNsPerOp = (double) total / MEASURED_ITERATIONS / n;
+                        double bestNsPerOp = (double) best / n;
+                        if (!first) {
+                            out.println(",");
+                        }
+                        first = false;
+                        // JSON needs '.' as the decimal separator in every locale
+                        out.printf(Locale.ROOT,
+                                "  {\"implementation\": \"%s\", \"keys\": \"%s\", "
+                                        + "\"operation\": \"%s\", \"size\": %d, "
+                                        + "\"meanNsPerOp\": %.2f, \"bestNsPerOp\": %.2f}",
+                                implementationNames[i], distributionNames[d], operation,
+                                n, meanNsPerOp, bestNsPerOp);
+                        System.out.printf("%-14s %-11s %-10s %12.2f ns/op%n",
+                                implementationNames[i], distributionNames[d], operation,
+                                meanNsPerOp);
+                    }
+                }
+            }
+            out.println();
+            out.println("]");
+        } catch (IOException e) {
+            System.err.println("Error writing " + outputFile + ": " + e.getMessage());
+        }
+    }
+
+}
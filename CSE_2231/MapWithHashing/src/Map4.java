@@ -1,5 +1,9 @@
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.IntUnaryOperator;
 
 import components.map.Map;
 import components.map.Map2;
@@ -8,31 +12,61 @@ import components.map.MapSecondary;
 /**
  * {@code Map} represented as a hash table using {@code Map}s for the buckets,
  * with implementations of primary methods.
+ * <p>
+ * The hash table grows when the number of entries per bucket exceeds the load
+ * factor, and shrinks back (never below its initial size) when it drops under
+ * a quarter of it. Resizing is incremental: while a rehash is in progress the
+ * previous table is kept alongside the new one, and every {@code add} and
+ * {@code remove} migrates a few of its buckets, so no single call has to move
+ * all of the entries.
+ * <p>
+ * Keys are placed by their hash codes after passing them through a
+ * replaceable hash-spreading function, e.g. {@link #MURMUR_SPREADER} for keys
+ * whose hash codes are clustered. {@link #bucketLengthHistogram()},
+ * {@link #maxChainLength()} and {@link #averageProbeCost()} report how evenly
+ * the keys are actually spread over the buckets.
+ * <p>
+ * Buckets are only created when the first key is added to them; a null entry
+ * in a hash table stands for an empty bucket, so creating, clearing or
+ * transferring from a map only allocates the array.
  *
  * @param <K>
  *            type of {@code Map} domain (key) entries
  * @param <V>
  *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * HASH(
+ *   x: K
+ *  ): integer is
+ *  [computed result of $this.hashSpreader.applyAsInt(x.hashCode())]
+ * </pre>
  * @convention <pre>
  * |$this.hashTable| > 0  and
+ * $this.loadFactor > 0  and
+ * 0 < $this.initialHashTableSize <= |$this.hashTable|  and
  * for all i: integer, pf: PARTIAL_FUNCTION, x: K
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1)  and
  *            x is in DOMAIN(pf))
- *   ([computed result of x.hashCode()] mod |$this.hashTable| = i))  and
- * for all i: integer
- *     where (0 <= i  and  i < |$this.hashTable|)
- *   ([entry at position i in $this.hashTable is not null])  and
- * $this.size = sum i: integer, pf: PARTIAL_FUNCTION
- *     where (0 <= i  and  i < |$this.hashTable|  and
- *            <pf> = $this.hashTable[i, i+1))
- *   (|pf|)
+ *   (HASH(x) mod |$this.hashTable| = i))  and
+ * if $this.oldHashTable /= null then
+ *   (0 <= $this.rehashIndex < |$this.oldHashTable|  and
+ *    for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *        where ($this.rehashIndex <= i  and  i < |$this.oldHashTable|  and
+ *               <pf> = $this.oldHashTable[i, i+1)  and
+ *               x is in DOMAIN(pf))
+ *      (HASH(x) mod |$this.oldHashTable| = i  and
+ *       x is not in the domain of any bucket of $this.hashTable))  and
+ * $this.size = [sum of the sizes of all buckets of $this.hashTable and, if
+ *   $this.oldHashTable /= null, of the buckets of $this.oldHashTable at
+ *   positions $this.rehashIndex through |$this.oldHashTable| - 1]
  * </pre>
+ * where a null entry of $this.hashTable or $this.oldHashTable is treated as
+ * an empty bucket, {}
  * @correspondence <pre>
- * this = union i: integer, pf: PARTIAL_FUNCTION
- *            where (0 <= i  and  i < |$this.hashTable|  and
- *                   <pf> = $this.hashTable[i, i+1))
- *          (pf)
+ * this = [union of all buckets of $this.hashTable and, if
+ *   $this.oldHashTable /= null, of the buckets of $this.oldHashTable at
+ *   positions $this.rehashIndex through |$this.oldHashTable| - 1]
  * </pre>
  *
  * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
@@ -40,6 +74,27 @@ import components.map.MapSecondary;
  */
 public class Map4<K, V> extends MapSecondary<K, V> {
 
+    /**
+     * Hash-spreading function that leaves hash codes as they are.
+     */
+    public static final IntUnaryOperator IDENTITY_SPREADER = hash -> hash;
+
+    /**
+     * Hash-spreading function applying the 32-bit finalizer of MurmurHash3,
+     * which makes every bit of the result depend on every bit of the hash
+     * code, so keys whose hash codes differ only in a few bits, or are
+     * multiples of the table size, still land in different buckets.
+     */
+    public static final IntUnaryOperator MURMUR_SPREADER = hash -> {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    };
+
     /*
      * Private members --------------------------------------------------------
      */
@@ -49,16 +104,60 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
+    /**
+     * Default maximum average number of entries per bucket.
+     */
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    /**
+     * Number of buckets of the old hash table migrated by each update while a
+     * rehash is in progress.
+     */
+    private static final int REHASH_STEP = 4;
+
     /**
      * Buckets for hashing.
      */
     private Map<K, V>[] hashTable;
 
+    /**
+     * Buckets of the hash table being migrated into {@code hashTable}, or null
+     * when no rehash is in progress.
+     */
+    private Map<K, V>[] oldHashTable;
+
+    /**
+     * Index of the next bucket of {@code oldHashTable} to be migrated.
+     */
+    private int rehashIndex;
+
+    /**
+     * Size of the hash table on construction, below which it never shrinks.
+     */
+    private int initialHashTableSize;
+
+    /**
+     * Maximum average number of entries per bucket before the table grows.
+     */
+    private double loadFactor;
+
+    /**
+     * Function applied to the hash codes of keys before reducing them to a
+     * bucket index.
+     */
+    private IntUnaryOperator hashSpreader;
+
     /**
      * Total size of abstract {@code this}.
      */
     private int size;
 
+    /**
+     * Number of changes made to {@code this} so far, checked by iterators to
+     * detect modifications made while they are in use.
+     */
+    private int modCount;
+
     /**
      * Computes {@code a} mod {@code b} as % should have been defined to work.
      *
@@ -86,35 +185,224 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     }
 
     /**
-     * Creator of initial representation.
+     * Creates and returns a hash table of {@code hashTableSize} empty buckets,
+     * none of which has been allocated yet.
      *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
      * @param hashTableSize
      *            the size of the hash table
+     * @return the new hash table
      * @requires hashTableSize > 0
      * @ensures <pre>
-     * |$this.hashTable| = hashTableSize  and
+     * |newHashTable| = hashTableSize  and
      * for all i: integer
-     *     where (0 <= i  and  i < |$this.hashTable|)
-     *   ($this.hashTable[i, i+1) = <{}>)  and
-     * $this.size = 0
+     *     where (0 <= i  and  i < |newHashTable|)
+     *   ([entry at position i in newHashTable is null])
      * </pre>
      */
     @SuppressWarnings("unchecked")
-    private void createNewRep(int hashTableSize) {
+    private static <K, V> Map<K, V>[] newHashTable(int hashTableSize) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
         /*
          * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
          * compile; as shown, it results in a warning about an unchecked
          * conversion, though it cannot fail.
          */
-        this.hashTable = new Map[hashTableSize];
+        return new Map[hashTableSize];
+    }
+
+    /**
+     * Returns the number of entries in {@code bucket}, which may be null if it
+     * has not been allocated.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param bucket
+     *            the bucket
+     * @return the size of the bucket
+     * @ensures <pre>
+     * if bucket = null then bucketSize = 0 else bucketSize = |bucket|
+     * </pre>
+     */
+    private static <K, V> int bucketSize(Map<K, V> bucket) {
+        int size = 0;
+        if (bucket != null) {
+            size = bucket.size();
+        }
+        return size;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param hashTableSize
+     *            the size of the hash table
+     * @requires hashTableSize > 0
+     * @ensures <pre>
+     * |$this.hashTable| = hashTableSize  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |$this.hashTable|)
+     *   ([entry at position i in $this.hashTable is null])  and
+     * $this.oldHashTable = null  and
+     * $this.size = 0
+     * </pre>
+     */
+    private void createNewRep(int hashTableSize) {
 
         // TODO - fill in body
 
-        for (int i = 0; i < hashTableSize; i++) {
-            this.hashTable[i] = new Map2<>();
-        }
+        this.hashTable = newHashTable(hashTableSize);
+        this.oldHashTable = null;
+        this.rehashIndex = 0;
         this.size = 0;
+        this.modCount++;
+
+    }
+
+    /**
+     * Returns the bucket in which {@code key} is, or would be, stored,
+     * allocating it first if it does not exist yet and {@code create} is true.
+     *
+     * @param key
+     *            the key to be located
+     * @param create
+     *            whether to allocate the bucket if it does not exist
+     * @return the bucket for {@code key}, or null if it does not exist and
+     *         {@code create} is false
+     * @updates $this.hashTable, $this.oldHashTable
+     * @ensures <pre>
+     * bucket is the entry of $this.hashTable, or of $this.oldHashTable if that
+     *   part of the table has not been migrated yet, at position
+     *   HASH(key) mod [the length of that table]  and
+     * if create then bucket /= null
+     * </pre>
+     */
+    private Map<K, V> bucket(K key, boolean create) {
+        int hash = this.hashSpreader.applyAsInt(key.hashCode());
+        Map<K, V>[] table = this.hashTable;
+        if (this.oldHashTable != null
+                && mod(hash, this.oldHashTable.length) >= this.rehashIndex) {
+            table = this.oldHashTable;
+        }
+        int index = mod(hash, table.length);
+        if (create && table[index] == null) {
+            table[index] = new Map2<>();
+        }
+        return table[index];
+    }
+
+    /**
+     * Starts migrating the entries of {@code this} into a new hash table of
+     * size {@code hashTableSize}.
+     *
+     * @param hashTableSize
+     *            the size of the new hash table
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @requires hashTableSize > 0 and $this.oldHashTable = null
+     * @ensures <pre>
+     * $this.oldHashTable = #$this.hashTable  and  $this.rehashIndex = 0  and
+     * |$this.hashTable| = hashTableSize  and
+     * [all buckets of $this.hashTable are empty]
+     * </pre>
+     */
+    private void startRehash(int hashTableSize) {
+        assert this.oldHashTable == null : "Violation of: $this.oldHashTable = null";
+
+        this.oldHashTable = this.hashTable;
+        this.hashTable = newHashTable(hashTableSize);
+        this.rehashIndex = 0;
+    }
+
+    /**
+     * Migrates up to {@code buckets} buckets of the old hash table into the
+     * current one, finishing the rehash when the last one has been moved.
+     *
+     * @param buckets
+     *            maximum number of old buckets to migrate
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @requires buckets > 0
+     * @ensures [this is unchanged, and min(buckets, [number of buckets left to
+     *          migrate]) more buckets of $this.oldHashTable have been moved]
+     */
+    private void rehashStep(int buckets) {
+        int moved = 0;
+        while (this.oldHashTable != null && moved < buckets) {
+            Map<K, V> oldBucket = this.oldHashTable[this.rehashIndex];
+            while (bucketSize(oldBucket) > 0) {
+                Pair<K, V> pair = oldBucket.removeAny();
+                int hash = this.hashSpreader.applyAsInt(pair.key().hashCode());
+                int index = mod(hash, this.hashTable.length);
+                if (this.hashTable[index] == null) {
+                    this.hashTable[index] = new Map2<>();
+                }
+                this.hashTable[index].add(pair.key(), pair.value());
+            }
+            this.oldHashTable[this.rehashIndex] = null;
+            this.rehashIndex++;
+            if (this.rehashIndex == this.oldHashTable.length) {
+                this.oldHashTable = null;
+                this.rehashIndex = 0;
+            }
+            moved++;
+        }
+    }
+
+    /**
+     * Starts growing or shrinking the hash table if the number of entries per
+     * bucket has left the range allowed by the load factor, unless a rehash is
+     * already in progress.
+     *
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @ensures [this is unchanged]
+     */
+    private void checkLoad() {
+        if (this.oldHashTable == null) {
+            int length = this.hashTable.length;
+            if (this.size > this.loadFactor * length) {
+                this.startRehash(2 * length + 1);
+            } else if (length > this.initialHashTableSize
+                    && this.size < this.loadFactor * length / 4) {
+                this.startRehash(Math.max(this.initialHashTableSize, length / 2));
+            }
+        }
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * $this.size = [sum of the sizes of all buckets of $this.hashTable and, if
+     *   $this.oldHashTable /= null, of the buckets of $this.oldHashTable at
+     *   positions $this.rehashIndex through |$this.oldHashTable| - 1]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        int totalSize = 0;
+
+        // Iterate through all buckets in the hash table
+        // and sum up the sizes of each bucket
+        for (Map<K, V> bucket : this.hashTable) {
+            totalSize += bucketSize(bucket);
+        }
+
+        // Include the part of the old table that has not been migrated yet
+        if (this.oldHashTable != null) {
+            for (int i = this.rehashIndex; i < this.oldHashTable.length; i++) {
+                totalSize += bucketSize(this.oldHashTable[i]);
+            }
+        }
 
+        assert this.size == totalSize : ""
+                + "Violation of: $this.size = [sum of the sizes of all buckets]";
+        return true;
     }
 
     /*
@@ -127,7 +415,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public Map4() {
 
         // TODO - fill in body
-        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this(DEFAULT_HASH_TABLE_SIZE, DEFAULT_LOAD_FACTOR, IDENTITY_SPREADER);
 
     }
 
@@ -142,10 +430,55 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public Map4(int hashTableSize) {
 
         // TODO - fill in body
-        this.createNewRep(hashTableSize);
+        this(hashTableSize, DEFAULT_LOAD_FACTOR, IDENTITY_SPREADER);
 
     }
 
+    /**
+     * Constructor resulting in a hash table of initial size
+     * {@code hashTableSize} that grows whenever the average number of entries
+     * per bucket exceeds {@code loadFactor}.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            maximum average number of entries per bucket
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor) {
+        this(hashTableSize, loadFactor, IDENTITY_SPREADER);
+    }
+
+    /**
+     * Constructor resulting in a hash table of initial size
+     * {@code hashTableSize}, growing at {@code loadFactor}, that places keys by
+     * their hash codes transformed by {@code hashSpreader}.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            maximum average number of entries per bucket
+     * @param hashSpreader
+     *            function applied to hash codes before picking a bucket
+     * @requires <pre>
+     * hashTableSize > 0  and  loadFactor > 0  and
+     * [hashSpreader is a function: it always returns the same result for the
+     *  same argument]
+     * </pre>
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor, IntUnaryOperator hashSpreader) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+        assert loadFactor > 0 : "Violation of: loadFactor > 0";
+        assert hashSpreader != null : "Violation of: hashSpreader is not null";
+
+        this.initialHashTableSize = hashTableSize;
+        this.loadFactor = loadFactor;
+        this.hashSpreader = hashSpreader;
+        this.createNewRep(hashTableSize);
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -163,7 +496,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     @Override
     public final void clear() {
-        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this.createNewRep(this.initialHashTableSize);
     }
 
     @Override
@@ -179,8 +512,16 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          */
         Map4<K, V> localSource = (Map4<K, V>) source;
         this.hashTable = localSource.hashTable;
+        this.oldHashTable = localSource.oldHashTable;
+        this.rehashIndex = localSource.rehashIndex;
+        this.initialHashTableSize = localSource.initialHashTableSize;
+        this.loadFactor = localSource.loadFactor;
+        this.hashSpreader = localSource.hashSpreader;
         this.size = localSource.size;
-        localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this.modCount++;
+        localSource.createNewRep(localSource.initialHashTableSize);
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
     }
 
     /*
@@ -194,12 +535,16 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
 
         // TODO - fill in body
-        // Compute the index in the hash table and add the key-value pair
-        int index = mod(key.hashCode(), this.hashTable.length);
-        this.hashTable[index].add(key, value);
+        // Move part of the old table along if a rehash is in progress
+        this.rehashStep(REHASH_STEP);
 
-        // Update size to reflect the change
+        // Add the key-value pair to the bucket it hashes to
+        this.bucket(key, true).add(key, value);
+
+        // Update size to reflect the change, growing the table if needed
         this.size++;
+        this.modCount++;
+        this.checkLoad();
 
     }
 
@@ -209,14 +554,19 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
 
         // TODO - fill in body
-        // Compute the index in the hash table
-        int index = mod(key.hashCode(), this.hashTable.length);
+        // Move part of the old table along if a rehash is in progress
+        this.rehashStep(REHASH_STEP);
+
+        // Remove the pair from the bucket it hashes to
+        Pair<K, V> removedPair = this.bucket(key, false).remove(key);
 
-        // Update size to reflect the removal
+        // Update size to reflect the removal, shrinking the table if needed
         this.size--;
+        this.modCount++;
+        this.checkLoad();
 
         // Return the removed key-value pair
-        return this.hashTable[index].remove(key);
+        return removedPair;
     }
 
     @Override
@@ -225,21 +575,39 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
         // TODO - fill in body
 
+        // Move part of the old table along if a rehash is in progress
+        this.rehashStep(REHASH_STEP);
+
         Pair<K, V> removedPair = null;
         boolean nonEmpty = false;
         int i = 0;
 
+        // Take from the not yet migrated part of the old table first
+        if (this.oldHashTable != null) {
+            i = this.rehashIndex;
+            while (!nonEmpty && i < this.oldHashTable.length) {
+                if (bucketSize(this.oldHashTable[i]) > 0) {
+                    removedPair = this.oldHashTable[i].removeAny();
+                    nonEmpty = true;
+                }
+                i++;
+            }
+            i = 0;
+        }
+
         // Find the first non-empty bucket and remove an element
         while (!nonEmpty) {
-            if (this.hashTable[i].size() > 0) {
+            if (bucketSize(this.hashTable[i]) > 0) {
                 removedPair = this.hashTable[i].removeAny();
                 nonEmpty = true;
             }
             i++;
         }
 
-        // Update size to reflect the removal
+        // Update size to reflect the removal, shrinking the table if needed
         this.size--;
+        this.modCount++;
+        this.checkLoad();
         // Return the removed key-value pair
         return removedPair;
     }
@@ -250,11 +618,9 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
 
         // TODO - fill in body
-        // Compute the index in the hash table
-        int index = mod(key.hashCode(), this.hashTable.length);
 
-        // Return the value associated with the key
-        return this.hashTable[index].value(key);
+        // Return the value associated with the key in its bucket
+        return this.bucket(key, false).value(key);
     }
 
     @Override
@@ -262,11 +628,10 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         assert key != null : "Violation of: key is not null";
 
         // TODO - fill in body
-        // Compute the index in the hash table
-        int index = mod(key.hashCode(), this.hashTable.length);
 
         // Check if the key exists in the corresponding bucket and return the result
-        boolean keyExists = this.hashTable[index].hasKey(key);
+        Map<K, V> bucket = this.bucket(key, false);
+        boolean keyExists = bucket != null && bucket.hasKey(key);
         return keyExists;
     }
 
@@ -275,19 +640,172 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
         // TODO - fill in body
 
-        // Initialize total count of key-value pairs
-        int totalSize = 0;
+        // The count is maintained by add and remove; in debug runs, check it
+        // against the buckets
+        assert this.conventionHolds();
 
-        // Iterate through all buckets in the hash table
-        // and sum up the sizes of each bucket
+        // Return the total number of key-value pairs in the map
+        return this.size;
+    }
+
+    /*
+     * Bulk loading -----------------------------------------------------------
+     */
+
+    /**
+     * Makes the hash table large enough to hold {@code expectedSize} entries
+     * without growing, finishing any rehash in progress. Unlike the incremental
+     * rehashing done by {@code add}, all the entries are moved right away, so
+     * this is meant to be called before loading a large batch of entries.
+     *
+     * @param expectedSize
+     *            number of entries this is expected to hold
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @requires expectedSize >= 0
+     * @ensures <pre>
+     * this = #this  and  $this.oldHashTable = null  and
+     * expectedSize <= $this.loadFactor * |$this.hashTable|
+     * </pre>
+     */
+    public final void ensureCapacity(int expectedSize) {
+        assert expectedSize >= 0 : "Violation of: expectedSize >= 0";
+
+        // Only moving entries invalidates iterators; a no-op call must not
+        boolean moved = false;
+        if (this.oldHashTable != null) {
+            this.rehashStep(this.oldHashTable.length);
+            moved = true;
+        }
+        if (expectedSize > this.loadFactor * this.hashTable.length) {
+            // Keep the number of buckets odd, like the sizes add grows to
+            int hashTableSize = (int) Math.ceil(expectedSize / this.loadFactor) | 1;
+            int oldHashTableSize = this.hashTable.length;
+            this.startRehash(hashTableSize);
+            this.rehashStep(oldHashTableSize);
+            moved = true;
+        }
+        if (moved) {
+            this.modCount++;
+        }
+    }
+
+    /**
+     * Adds all the pairs in {@code pairs} to this. The table is sized for
+     * {@code expectedCount} more entries up front, and each key is hashed
+     * once and put straight into its bucket, without the rehash steps and load
+     * checks of {@code add}; the table is still grown if {@code expectedCount}
+     * turns out to be too small.
+     *
+     * @param pairs
+     *            the pairs to be added
+     * @param expectedCount
+     *            the number of pairs expected in {@code pairs}
+     * @updates this
+     * @requires <pre>
+     * expectedCount >= 0  and
+     * [the keys of pairs are all different]  and
+     * [no key of pairs is in DOMAIN(this)]
+     * </pre>
+     * @ensures this = #this union [the pairs in pairs]
+     */
+    public final void addAll(Iterable<Pair<K, V>> pairs, int expectedCount) {
+        assert pairs != null : "Violation of: pairs is not null";
+        assert pairs != this : "Violation of: pairs is not this";
+        assert expectedCount >= 0 : "Violation of: expectedCount >= 0";
+
+        this.ensureCapacity(this.size + expectedCount);
+        for (Pair<K, V> pair : pairs) {
+            K key = pair.key();
+            assert key != null : "Violation of: key is not null";
+            assert pair.value() != null : "Violation of: value is not null";
+            assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+            int hash = this.hashSpreader.applyAsInt(key.hashCode());
+            int index = mod(hash, this.hashTable.length);
+            if (this.hashTable[index] == null) {
+                this.hashTable[index] = new Map2<>();
+            }
+            this.hashTable[index].add(key, pair.value());
+            this.size++;
+            if (this.size > this.loadFactor * this.hashTable.length) {
+                this.ensureCapacity(2 * this.size);
+            }
+        }
+        this.modCount++;
+    }
+
+    /*
+     * Instrumentation --------------------------------------------------------
+     */
+
+    /**
+     * Reports how many buckets hold each number of entries, counting the
+     * buckets of both tables while a rehash is in progress.
+     *
+     * @return the histogram of bucket lengths
+     * @ensures <pre>
+     * |bucketLengthHistogram| = [length of the longest bucket] + 1  and
+     * for all n: integer
+     *     where (0 <= n  and  n < |bucketLengthHistogram|)
+     *   (bucketLengthHistogram[n] = [number of buckets with n entries])
+     * </pre>
+     */
+    public final int[] bucketLengthHistogram() {
+        int[] histogram = new int[this.maxChainLength() + 1];
         for (Map<K, V> bucket : this.hashTable) {
-            if (bucket.size() > 0) {
-                totalSize += bucket.size();
+            histogram[bucketSize(bucket)]++;
+        }
+        if (this.oldHashTable != null) {
+            for (int i = this.rehashIndex; i < this.oldHashTable.length; i++) {
+                histogram[bucketSize(this.oldHashTable[i])]++;
             }
         }
+        return histogram;
+    }
 
-        // Return the total number of key-value pairs in the map
-        return totalSize;
+    /**
+     * Reports the number of entries in the longest bucket.
+     *
+     * @return the length of the longest bucket
+     * @ensures maxChainLength = [maximum number of entries in one bucket]
+     */
+    public final int maxChainLength() {
+        int max = 0;
+        for (Map<K, V> bucket : this.hashTable) {
+            max = Math.max(max, bucketSize(bucket));
+        }
+        if (this.oldHashTable != null) {
+            for (int i = this.rehashIndex; i < this.oldHashTable.length; i++) {
+                max = Math.max(max, bucketSize(this.oldHashTable[i]));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Reports the average number of entries looked at by a successful lookup,
+     * assuming every key is looked up equally often and a bucket is searched
+     * linearly: a key that is the k-th entry of its bucket costs k. A perfect
+     * spread gives a cost close to 1; a hot bucket of length n adds about
+     * n * n / 2 to the total.
+     *
+     * @return the average cost of looking up a key of this, or 0 if this is
+     *         empty
+     * @ensures <pre>
+     * averageProbeCost = [sum over all buckets b of |b| * (|b| + 1) / 2] / |this|
+     * </pre>
+     */
+    public final double averageProbeCost() {
+        long totalCost = 0;
+        int[] histogram = this.bucketLengthHistogram();
+        for (int n = 1; n < histogram.length; n++) {
+            totalCost += (long) histogram[n] * n * (n + 1) / 2;
+        }
+        double cost = 0;
+        if (this.size > 0) {
+            cost = (double) totalCost / this.size;
+        }
+        return cost;
     }
 
     @Override
@@ -297,31 +815,79 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     /**
      * Implementation of {@code Iterator} interface for {@code Map4}.
+     * <p>
+     * Empty and unallocated buckets are skipped without creating iterators for
+     * them. The entries of each non-empty bucket are copied into a buffer that
+     * is reused from bucket to bucket, so that {@code remove} can take the
+     * last entry returned out of its bucket without disturbing the iteration.
+     * Any other change to the map while the iterator is in use makes the next
+     * call to {@code next} or {@code remove} throw
+     * {@code ConcurrentModificationException}.
      */
     private final class Map4Iterator implements Iterator<Pair<K, V>> {
 
         /**
-         * Number of elements seen already (i.e., |~this.seen|).
+         * Number of elements seen already (i.e., |~this.seen|), not counting
+         * those removed through this iterator.
          */
         private int numberSeen;
 
         /**
-         * Bucket from which current bucket iterator comes.
+         * Hash table (old or current) being iterated over.
+         */
+        private Map<K, V>[] table;
+
+        /**
+         * Bucket whose entries are in {@code bucketPairs}.
          */
         private int currentBucket;
 
         /**
-         * Bucket iterator from which next element will come.
+         * Entries of the current bucket.
+         */
+        private final List<Pair<K, V>> bucketPairs;
+
+        /**
+         * Position in {@code bucketPairs} of the next element.
          */
-        private Iterator<Pair<K, V>> bucketIterator;
+        private int position;
+
+        /**
+         * Bucket holding the last element returned, or null if there is none
+         * or it has been removed.
+         */
+        private Map<K, V> lastBucket;
+
+        /**
+         * Value of {@code modCount} the map is expected to have.
+         */
+        private int expectedModCount;
 
         /**
          * No-argument constructor.
          */
         Map4Iterator() {
             this.numberSeen = 0;
-            this.currentBucket = 0;
-            this.bucketIterator = Map4.this.hashTable[0].iterator();
+            if (Map4.this.oldHashTable != null) {
+                this.table = Map4.this.oldHashTable;
+                this.currentBucket = Map4.this.rehashIndex - 1;
+            } else {
+                this.table = Map4.this.hashTable;
+                this.currentBucket = -1;
+            }
+            this.bucketPairs = new ArrayList<>();
+            this.position = 0;
+            this.lastBucket = null;
+            this.expectedModCount = Map4.this.modCount;
+        }
+
+        /**
+         * Reports a change made to the map other than through this iterator.
+         */
+        private void checkForModification() {
+            if (Map4.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
         }
 
         @Override
@@ -331,6 +897,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
         @Override
         public Pair<K, V> next() {
+            this.checkForModification();
             assert this.hasNext() : "Violation of: ~this.unseen /= <>";
             if (!this.hasNext()) {
                 /*
@@ -341,16 +908,48 @@ public class Map4<K, V> extends MapSecondary<K, V> {
                 throw new NoSuchElementException();
             }
             this.numberSeen++;
-            while (!this.bucketIterator.hasNext()) {
-                this.currentBucket++;
-                this.bucketIterator = Map4.this.hashTable[this.currentBucket].iterator();
+            while (this.position == this.bucketPairs.size()) {
+                // Move on to the next non-empty bucket and copy it
+                Map<K, V> bucket;
+                do {
+                    this.currentBucket++;
+                    if (this.currentBucket == this.table.length) {
+                        // Done with the old table, continue with the current one
+                        this.table = Map4.this.hashTable;
+                        this.currentBucket = 0;
+                    }
+                    bucket = this.table[this.currentBucket];
+                } while (bucketSize(bucket) == 0);
+                this.bucketPairs.clear();
+                for (Pair<K, V> pair : bucket) {
+                    this.bucketPairs.add(pair);
+                }
+                this.position = 0;
             }
-            return this.bucketIterator.next();
+            this.lastBucket = this.table[this.currentBucket];
+            Pair<K, V> next = this.bucketPairs.get(this.position);
+            this.position++;
+            return next;
         }
 
         @Override
         public void remove() {
-            throw new UnsupportedOperationException("remove operation not supported");
+            this.checkForModification();
+            if (this.lastBucket == null) {
+                throw new IllegalStateException(
+                        "next has not been called since the last remove");
+            }
+            /*
+             * Remove straight from the bucket, without the rehash step and load
+             * check done by Map4.remove, so the tables stay as they are until
+             * the iteration is over
+             */
+            this.lastBucket.remove(this.bucketPairs.get(this.position - 1).key());
+            this.lastBucket = null;
+            Map4.this.size--;
+            Map4.this.modCount++;
+            this.expectedModCount = Map4.this.modCount;
+            this.numberSeen--;
         }
 
     }
@@ -0,0 +1,518 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as an open-addressing hash table, with keys and
+ * values stored in two parallel arrays and collisions resolved by linear
+ * probing, with implementations of primary methods.
+ * <p>
+ * Removal uses backward-shift deletion instead of tombstones: the entries
+ * following a removed one in its probe run are moved back into the hole
+ * whenever that does not place them before their home slot, so every probe
+ * run stays contiguous and lookups never have to skip over deleted slots.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * HOME(
+ *   x: K,
+ *   length: integer
+ *  ): integer is
+ *  [computed result of Map5.spread(x.hashCode())] mod length
+ * </pre>
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and
+ * [$this.initialCapacity is a power of 2]  and
+ * $this.initialCapacity <= |$this.keys|  and
+ * 2 * $this.size <= |$this.keys|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|)
+ *   (($this.keys[i] = null) = ($this.values[i] = null))  and
+ * $this.size = [number of non-null entries of $this.keys]  and
+ * [the non-null entries of $this.keys are all different]  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|  and  $this.keys[i] /= null)
+ *   ([every slot of $this.keys from HOME($this.keys[i], |$this.keys|)
+ *     through i, wrapping around the end of the array, is not null])  and
+ * for all i: integer
+ *     where ($this.lastOccupied < i  and  i < |$this.keys|)
+ *   ($this.keys[i] = null)
+ * </pre>
+ * @correspondence <pre>
+ * this = {(x, y): (K, V)
+ *          where there exists i: integer
+ *            (0 <= i  and  i < |$this.keys|  and
+ *             $this.keys[i] = x  and  $this.keys[i] /= null  and
+ *             $this.values[i] = y)}
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Map5<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default number of slots; must be a power of 2.
+     */
+    private static final int DEFAULT_CAPACITY = 128;
+
+    /**
+     * Keys, indexed by slot; null marks an empty slot.
+     */
+    private K[] keys;
+
+    /**
+     * Values associated with the keys in the same slots.
+     */
+    private V[] values;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private int size;
+
+    /**
+     * Upper bound on the index of the last occupied slot, where
+     * {@code removeAny} starts looking.
+     */
+    private int lastOccupied;
+
+    /**
+     * Number of slots on construction, restored by {@code clear}.
+     */
+    private int initialCapacity;
+
+    /**
+     * Simple implementation of {@code Map.Pair}, used to report the entries
+     * that are removed or iterated over.
+     *
+     * @param <K>
+     *            type of key
+     * @param <V>
+     *            type of value
+     */
+    private static final class SimplePair<K, V> implements Pair<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * Constructor from key and value.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        SimplePair(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return this.key;
+        }
+
+        @Override
+        public V value() {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            boolean result = false;
+            if (obj instanceof Pair<?, ?>) {
+                Pair<?, ?> pair = (Pair<?, ?>) obj;
+                result = this.key.equals(pair.key())
+                        && this.value.equals(pair.value());
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode() ^ this.value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.key + "," + this.value + ")";
+        }
+
+    }
+
+    /**
+     * Mixes the high bits of {@code hash} into the low ones, which are the only
+     * ones used to pick a slot in a power-of-2 sized table.
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the smallest power of 2 that is at least {@code n}.
+     *
+     * @param n
+     *            the lower bound
+     * @return the power of 2
+     * @requires 0 < n <= 2^30
+     * @ensures <pre>
+     * [powerOfTwoAtLeast is a power of 2]  and  n <= powerOfTwoAtLeast  and
+     * powerOfTwoAtLeast < 2 * n
+     * </pre>
+     */
+    private static int powerOfTwoAtLeast(int n) {
+        assert n > 0 : "Violation of: n > 0";
+
+        int result = 1;
+        while (result < n) {
+            result *= 2;
+        }
+        return result;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the number of slots
+     * @requires [capacity is a power of 2] and capacity > 1
+     * @ensures <pre>
+     * |$this.keys| = capacity  and  |$this.values| = capacity  and
+     * [all entries of $this.keys and $this.values are null]  and
+     * $this.size = 0
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep(int capacity) {
+        /*
+         * With "new K[...]" in place of "new Object[...]" it does not compile;
+         * as shown, it results in a warning about an unchecked cast, though it
+         * cannot fail.
+         */
+        this.keys = (K[]) new Object[capacity];
+        this.values = (V[]) new Object[capacity];
+        this.size = 0;
+        this.lastOccupied = capacity - 1;
+    }
+
+    /**
+     * Returns the home slot of {@code key}, where its probe sequence starts.
+     *
+     * @param key
+     *            the key
+     * @return the home slot
+     * @ensures homeSlot = HOME(key, |$this.keys|)
+     */
+    private int homeSlot(K key) {
+        return spread(key.hashCode()) & (this.keys.length - 1);
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot that ends its
+     * probe sequence if it is not in {@code this}.
+     *
+     * @param key
+     *            the key to be searched for
+     * @return the slot for {@code key}
+     * @ensures <pre>
+     * if key is in DOMAIN(this) then
+     *   $this.keys[findSlot] = key
+     * else
+     *   $this.keys[findSlot] = null
+     * </pre>
+     */
+    private int findSlot(K key) {
+        int mask = this.keys.length - 1;
+        int slot = this.homeSlot(key);
+        while (this.keys[slot] != null && !this.keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties slot {@code hole} and shifts back the rest of its probe run to
+     * keep it contiguous.
+     *
+     * @param hole
+     *            the slot to be emptied
+     * @updates $this.keys, $this.values
+     * @requires 0 <= hole < |$this.keys| and $this.keys[hole] /= null
+     * @ensures <pre>
+     * this = #this \ {(#$this.keys[hole], #$this.values[hole])}
+     * </pre>
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.keys.length - 1;
+        int slot = (hole + 1) & mask;
+        while (this.keys[slot] != null) {
+            /*
+             * The entry in slot may fill the hole only if the hole lies
+             * between its home slot and slot itself
+             */
+            int home = this.homeSlot(this.keys[slot]);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                this.keys[hole] = this.keys[slot];
+                this.values[hole] = this.values[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[hole] = null;
+        this.values[hole] = null;
+    }
+
+    /**
+     * Moves every entry into a new pair of arrays of {@code capacity} slots.
+     *
+     * @param capacity
+     *            the new number of slots
+     * @updates $this.keys, $this.values
+     * @requires [capacity is a power of 2] and 2 * $this.size <= capacity
+     * @ensures this = #this and |$this.keys| = capacity
+     */
+    private void resize(int capacity) {
+        K[] oldKeys = this.keys;
+        V[] oldValues = this.values;
+        int oldSize = this.size;
+        this.createNewRep(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = this.findSlot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+        this.size = oldSize;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map5() {
+        this.initialCapacity = DEFAULT_CAPACITY;
+        this.createNewRep(this.initialCapacity);
+    }
+
+    /**
+     * Constructor resulting in a table that can hold {@code expectedSize}
+     * entries without growing.
+     *
+     * @param expectedSize
+     *            number of entries expected
+     * @requires 0 < expectedSize <= 2^29
+     * @ensures this = {}
+     */
+    public Map5(int expectedSize) {
+        assert expectedSize > 0 : "Violation of: expectedSize > 0";
+
+        this.initialCapacity = powerOfTwoAtLeast(2 * expectedSize);
+        this.createNewRep(this.initialCapacity);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            // Ask for half the slots, which gives back the same power of 2
+            return this.getClass().getConstructor(int.class)
+                    .newInstance(this.initialCapacity / 2);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.initialCapacity);
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map5<?, ?>
+                : "" + "Violation of: source is of dynamic type Map5<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Map5<?,?>, and
+         * the ?,? must be K,V or the call would not have compiled.
+         */
+        Map5<K, V> localSource = (Map5<K, V>) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.size = localSource.size;
+        this.lastOccupied = localSource.lastOccupied;
+        this.initialCapacity = localSource.initialCapacity;
+        localSource.createNewRep(localSource.initialCapacity);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        // Keep at least half of the slots empty so probe runs stay short
+        if (2 * (this.size + 1) > this.keys.length) {
+            this.resize(2 * this.keys.length);
+        }
+
+        int slot = this.findSlot(key);
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if (slot > this.lastOccupied) {
+            this.lastOccupied = slot;
+        }
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        int slot = this.findSlot(key);
+        Pair<K, V> removedPair = new SimplePair<>(this.keys[slot], this.values[slot]);
+        this.deleteSlot(slot);
+        this.size--;
+        return removedPair;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        /*
+         * Take the entry in the last occupied slot; shifting back the rest of
+         * its probe run can only refill slots at or below it, so the next call
+         * can resume the search from here
+         */
+        while (this.keys[this.lastOccupied] == null) {
+            this.lastOccupied--;
+        }
+        int slot = this.lastOccupied;
+        Pair<K, V> removedPair = new SimplePair<>(this.keys[slot], this.values[slot]);
+        this.deleteSlot(slot);
+        this.size--;
+        return removedPair;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.keys[this.findSlot(key)] != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map5Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map5}.
+     */
+    private final class Map5Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to look for the next element.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        Map5Iterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map5.this.size;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (Map5.this.keys[this.currentSlot] == null) {
+                this.currentSlot++;
+            }
+            Pair<K, V> next = new SimplePair<>(Map5.this.keys[this.currentSlot],
+                    Map5.this.values[this.currentSlot]);
+            this.currentSlot++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,574 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+
+import components.map.Map;
+import components.map.Map2;
+import components.map.MapSecondary;
+
+/**
+ * Thread-safe {@code Map} represented as a fixed number of segments, each of
+ * which is a hash table using {@code Map}s for the buckets and is guarded by
+ * its own lock, with implementations of primary methods.
+ * <p>
+ * Operations on keys in different segments never wait for each other, and a
+ * segment that gets too full rehashes while holding only its own lock. The
+ * size is kept in a {@code LongAdder}, so updating it does not make all the
+ * threads contend on one counter. Kernel methods are atomic, but a sequence of
+ * them is not: {@code addIfAbsent} and {@code merge} are provided for the
+ * usual check-then-update steps. {@code clear}, {@code transferFrom} and
+ * {@code newInstance} must not run concurrently with other operations, and
+ * iterators are weakly consistent: each segment is copied under its lock when
+ * the iterator reaches it.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * |$this.segments| = SEGMENTS  and
+ * for all s: Segment
+ *     where (s is an entry of $this.segments)
+ *   (|s.hashTable| > 0  and
+ *    [all entries of s.hashTable are not null]  and
+ *    for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *        where (0 <= i  and  i < |s.hashTable|  and
+ *               <pf> = s.hashTable[i, i+1)  and
+ *               x is in DOMAIN(pf))
+ *      ([x belongs in segment s]  and
+ *       [computed result of x.hashCode()] mod |s.hashTable| = i)  and
+ *    s.size = [sum of the sizes of the buckets of s.hashTable])  and
+ * $this.size = [sum of s.size over all the segments s, once no update is
+ *   in progress]
+ * </pre>
+ * @correspondence <pre>
+ * this = [union of all buckets of all the segments of $this.segments]
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Map6<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of segments; must be a power of 2.
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Number of bits of the spread hash code used to select the segment.
+     */
+    private static final int SEGMENT_BITS = 4;
+
+    /**
+     * Initial size of the hash table of each segment.
+     */
+    private static final int SEGMENT_HASH_TABLE_SIZE = 7;
+
+    /**
+     * Maximum average number of entries per bucket of a segment.
+     */
+    private static final double LOAD_FACTOR = 0.75;
+
+    /**
+     * A hash table guarded by its own lock.
+     *
+     * @param <K>
+     *            type of key
+     * @param <V>
+     *            type of value
+     */
+    private static final class Segment<K, V> {
+
+        /**
+         * Lock guarding the fields below.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Buckets for hashing.
+         */
+        private Map<K, V>[] hashTable;
+
+        /**
+         * Number of entries in this segment.
+         */
+        private int size;
+
+        /**
+         * No-argument constructor.
+         */
+        Segment() {
+            this.hashTable = newHashTable(SEGMENT_HASH_TABLE_SIZE);
+            this.size = 0;
+        }
+
+        /**
+         * Returns the bucket in which {@code key} is, or would be, stored.
+         *
+         * @param key
+         *            the key to be located
+         * @return the bucket for {@code key}
+         * @requires [the current thread holds this.lock]
+         */
+        Map<K, V> bucket(K key) {
+            return this.hashTable[mod(key.hashCode(), this.hashTable.length)];
+        }
+
+        /**
+         * Doubles the size of the hash table if it has become too full.
+         *
+         * @requires [the current thread holds this.lock]
+         */
+        void checkLoad() {
+            if (this.size > LOAD_FACTOR * this.hashTable.length) {
+                Map<K, V>[] oldHashTable = this.hashTable;
+                this.hashTable = newHashTable(2 * oldHashTable.length + 1);
+                for (Map<K, V> oldBucket : oldHashTable) {
+                    while (oldBucket.size() > 0) {
+                        Pair<K, V> pair = oldBucket.removeAny();
+                        this.bucket(pair.key()).add(pair.key(), pair.value());
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Segments of the hash table.
+     */
+    private Segment<K, V>[] segments;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private LongAdder size;
+
+    /**
+     * Computes {@code a} mod {@code b} as % should have been defined to work.
+     *
+     * @param a
+     *            the number being reduced
+     * @param b
+     *            the modulus
+     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
+     * @requires b > 0
+     * @ensures <pre>
+     * 0 <= mod  and  mod < b  and
+     * there exists k: integer (a = k * b + mod)
+     * </pre>
+     */
+    private static int mod(int a, int b) {
+        assert b > 0 : "Violation of: b > 0";
+
+        int result = a % b;
+        if (a < 0 && result != 0) {
+            result = result + b;
+        }
+        return result;
+    }
+
+    /**
+     * Creates and returns a hash table of {@code hashTableSize} empty buckets.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param hashTableSize
+     *            the size of the hash table
+     * @return the new hash table
+     * @requires hashTableSize > 0
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newHashTable(int hashTableSize) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+        /*
+         * With "new Map<K, V>[...]" in place of "new Map<?, ?>[...]" it does
+         * not compile; as shown, it results in a warning about an unchecked
+         * cast, though it cannot fail.
+         */
+        Map<K, V>[] table = (Map<K, V>[]) new Map<?, ?>[hashTableSize];
+        for (int i = 0; i < hashTableSize; i++) {
+            table[i] = new Map2<>();
+        }
+        return table;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep() {
+        // As in newHashTable, the unchecked cast cannot fail
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment<>();
+        }
+        this.size = new LongAdder();
+    }
+
+    /**
+     * Returns the segment in which {@code key} is, or would be, stored. The
+     * segment is chosen from the high bits of the spread hash code, so that it
+     * is independent of the bucket chosen within it.
+     *
+     * @param key
+     *            the key to be located
+     * @return the segment for {@code key}
+     */
+    private Segment<K, V> segment(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        return this.segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map6() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map6<?, ?>
+                : "" + "Violation of: source is of dynamic type Map6<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Map6<?,?>, and
+         * the ?,? must be K,V or the call would not have compiled.
+         */
+        Map6<K, V> localSource = (Map6<K, V>) source;
+        this.segments = localSource.segments;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        segment.lock.lock();
+        try {
+            Map<K, V> bucket = segment.bucket(key);
+            assert !bucket.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+            bucket.add(key, value);
+            segment.size++;
+            this.size.increment();
+            segment.checkLoad();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        Pair<K, V> removedPair;
+        segment.lock.lock();
+        try {
+            Map<K, V> bucket = segment.bucket(key);
+            assert bucket.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+            removedPair = bucket.remove(key);
+            segment.size--;
+            this.size.decrement();
+        } finally {
+            segment.lock.unlock();
+        }
+        return removedPair;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        Pair<K, V> removedPair = null;
+        int i = 0;
+
+        // Take from the first segment found to be non-empty
+        while (removedPair == null && i < SEGMENTS) {
+            Segment<K, V> segment = this.segments[i];
+            segment.lock.lock();
+            try {
+                if (segment.size > 0) {
+                    int j = 0;
+                    while (segment.hashTable[j].size() == 0) {
+                        j++;
+                    }
+                    removedPair = segment.hashTable[j].removeAny();
+                    segment.size--;
+                    this.size.decrement();
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+            i++;
+        }
+
+        assert removedPair != null : "Violation of: this /= empty_set";
+        return removedPair;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        V value;
+        segment.lock.lock();
+        try {
+            Map<K, V> bucket = segment.bucket(key);
+            assert bucket.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+            value = bucket.value(key);
+        } finally {
+            segment.lock.unlock();
+        }
+        return value;
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        boolean keyExists;
+        segment.lock.lock();
+        try {
+            keyExists = segment.bucket(key).hasKey(key);
+        } finally {
+            segment.lock.unlock();
+        }
+        return keyExists;
+    }
+
+    @Override
+    public final int size() {
+        return this.size.intValue();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Adds the pair ({@code key}, {@code value}) to this unless {@code key} is
+     * already in its domain, as one atomic step.
+     *
+     * @param key
+     *            the key to be added
+     * @param value
+     *            the associated value to be added
+     * @return true if the pair was added, false if {@code key} was already in
+     *         {@code DOMAIN(this)}
+     * @updates this
+     * @ensures <pre>
+     * addIfAbsent = (key is not in DOMAIN(#this))  and
+     * if addIfAbsent then this = #this union {(key, value)}
+     * else this = #this
+     * </pre>
+     */
+    public final boolean addIfAbsent(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        boolean added = false;
+        segment.lock.lock();
+        try {
+            Map<K, V> bucket = segment.bucket(key);
+            if (!bucket.hasKey(key)) {
+                bucket.add(key, value);
+                segment.size++;
+                this.size.increment();
+                segment.checkLoad();
+                added = true;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} if {@code key} is not in the
+     * domain of this, and otherwise replaces its value with the result of
+     * {@code combine} applied to the old value and {@code value}, as one
+     * atomic step. For example, {@code merge(word, 1, Integer::sum)} counts one
+     * more occurrence of {@code word}.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value to add or combine with
+     * @param combine
+     *            the function combining the old value with {@code value}
+     * @return the value now associated with {@code key}
+     * @updates this
+     * @requires [combine does not return null and does not access this]
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union
+     *     {(key, [combine.apply(#this(key), value)])}
+     * else
+     *   this = #this union {(key, value)}
+     * </pre>
+     */
+    public final V merge(K key, V value, BinaryOperator<V> combine) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert combine != null : "Violation of: combine is not null";
+
+        Segment<K, V> segment = this.segment(key);
+        V newValue;
+        segment.lock.lock();
+        try {
+            Map<K, V> bucket = segment.bucket(key);
+            if (bucket.hasKey(key)) {
+                Pair<K, V> oldPair = bucket.remove(key);
+                newValue = combine.apply(oldPair.value(), value);
+                bucket.add(oldPair.key(), newValue);
+            } else {
+                newValue = value;
+                bucket.add(key, value);
+                segment.size++;
+                this.size.increment();
+                segment.checkLoad();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return newValue;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map6Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map6}.
+     */
+    private final class Map6Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Index of the next segment to be copied.
+         */
+        private int nextSegment;
+
+        /**
+         * Pairs copied from the current segment.
+         */
+        private final List<Pair<K, V>> segmentPairs;
+
+        /**
+         * Position in {@code segmentPairs} of the next element.
+         */
+        private int position;
+
+        /**
+         * No-argument constructor.
+         */
+        Map6Iterator() {
+            this.nextSegment = 0;
+            this.segmentPairs = new ArrayList<>();
+            this.position = 0;
+            this.advance();
+        }
+
+        /**
+         * Copies segments until one with unseen pairs is found or there are no
+         * segments left.
+         */
+        private void advance() {
+            while (this.position == this.segmentPairs.size()
+                    && this.nextSegment < SEGMENTS) {
+                this.segmentPairs.clear();
+                this.position = 0;
+                Segment<K, V> segment = Map6.this.segments[this.nextSegment];
+                segment.lock.lock();
+                try {
+                    for (Map<K, V> bucket : segment.hashTable) {
+                        for (Pair<K, V> pair : bucket) {
+                            this.segmentPairs.add(pair);
+                        }
+                    }
+                } finally {
+                    segment.lock.unlock();
+                }
+                this.nextSegment++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.position < this.segmentPairs.size();
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Pair<K, V> next = this.segmentPairs.get(this.position);
+            this.position++;
+            this.advance();
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,818 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} from {@code String} to {@code String} represented as an
+ * open-addressing hash table stored in a memory-mapped file, with
+ * implementations of primary methods.
+ * <p>
+ * The file starts with a header, followed by an array of slots and a heap of
+ * records. Each slot holds the hash code of its key and the offset of the
+ * record with the key and value, or 0 if the slot is empty; each record holds
+ * the lengths of the key and of the value followed by their UTF-8 bytes.
+ * Collisions are resolved by linear probing with backward-shift deletion, as
+ * in {@code Map5}. Because {@code String.hashCode} is the same from one run to
+ * the next, a map built once can be reopened with {@code Map7(fileName)}
+ * without rehashing or parsing anything: only the pages actually touched are
+ * read from disk.
+ * <p>
+ * Records are appended to the heap and never moved, so the space of removed
+ * entries (and of old values replaced by {@code replaceValue}) is only
+ * reclaimed by {@code clear}. The file can grow to at most 2GB. Changes reach
+ * the file when the operating system writes the mapped pages back; call
+ * {@code force} to write them right away.
+ * <p>
+ * Each {@code Map7} keeps its file open until {@code close} is called; this
+ * includes the temporary file behind one made by the no-argument constructor
+ * or by {@code newInstance}. Each {@code Map7} stays tied to its file:
+ * {@code transferFrom} copies the contents of the file of {@code source} into
+ * the file of {@code this}, and then empties the file of {@code source}.
+ *
+ * @mathdefinitions <pre>
+ * HOME(
+ *   hash: integer,
+ *   capacity: integer
+ *  ): integer is
+ *  [hash ^ (hash >>> 16)] mod capacity
+ *
+ * SLOT_HASH(i: integer): integer is
+ *  [integer at position $this.slotsOffset + 8 * i of $this.buffer]
+ *
+ * SLOT_RECORD(i: integer): integer is
+ *  [integer at position $this.slotsOffset + 8 * i + 4 of $this.buffer]
+ * </pre>
+ * @convention <pre>
+ * [the header of $this.buffer holds MAGIC, the capacity, the size, the
+ *  offset of the slots and the end of the heap]  and
+ * [the capacity is a power of 2]  and  2 * [the size] <= [the capacity]  and
+ * [the size] = [number of slots i with SLOT_RECORD(i) /= 0]  and
+ * for all i: integer
+ *     where (0 <= i  and  i < [the capacity]  and  SLOT_RECORD(i) /= 0)
+ *   (SLOT_RECORD(i) is the offset of a record, before the end of the heap,
+ *    whose key has hash code SLOT_HASH(i)  and
+ *    [every slot from HOME(SLOT_HASH(i), [the capacity]) through i, wrapping
+ *     around the end of the array, has SLOT_RECORD /= 0])  and
+ * [the keys of the records of the slots are all different]  and
+ * for all i: integer
+ *     where ($this.lastOccupied < i  and  i < [the capacity])
+ *   (SLOT_RECORD(i) = 0)
+ * </pre>
+ * @correspondence <pre>
+ * this = {(x, y): (String, String)
+ *          where there exists i: integer
+ *            (0 <= i  and  i < [the capacity]  and  SLOT_RECORD(i) /= 0  and
+ *             x = [key of the record at SLOT_RECORD(i)]  and
+ *             y = [value of the record at SLOT_RECORD(i)])}
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Map7 extends MapSecondary<String, String> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Marker at the start of every file written by {@code Map7}.
+     */
+    private static final int MAGIC = 0x4d415037;
+
+    /**
+     * Position in the header of the number of slots.
+     */
+    private static final int CAPACITY_POSITION = 4;
+
+    /**
+     * Position in the header of the number of entries.
+     */
+    private static final int SIZE_POSITION = 8;
+
+    /**
+     * Position in the header of the offset of the slot array.
+     */
+    private static final int SLOTS_POSITION = 12;
+
+    /**
+     * Position in the header of the end of the heap of records.
+     */
+    private static final int HEAP_END_POSITION = 16;
+
+    /**
+     * Size of the header.
+     */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * Size of a slot: hash code and record offset.
+     */
+    private static final int SLOT_SIZE = 8;
+
+    /**
+     * Size of the part of a record before the key and value bytes.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Number of slots of a new file; must be a power of 2.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Room left for records in a new file.
+     */
+    private static final int INITIAL_HEAP_SIZE = 64 * 1024;
+
+    /**
+     * The file holding the map.
+     */
+    private File file;
+
+    /**
+     * Open channel to {@code file}.
+     */
+    private FileChannel channel;
+
+    /**
+     * The mapped contents of {@code file}.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Upper bound on the index of the last occupied slot, where
+     * {@code removeAny} starts looking.
+     */
+    private int lastOccupied;
+
+    /**
+     * Simple implementation of {@code Map.Pair}, used to report the entries
+     * that are removed or iterated over.
+     */
+    private static final class SimplePair implements Pair<String, String> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The value.
+         */
+        private final String value;
+
+        /**
+         * Constructor from key and value.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        SimplePair(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return this.key;
+        }
+
+        @Override
+        public String value() {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            boolean result = false;
+            if (obj instanceof Pair<?, ?>) {
+                Pair<?, ?> pair = (Pair<?, ?>) obj;
+                result = this.key.equals(pair.key())
+                        && this.value.equals(pair.value());
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode() ^ this.value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.key + "," + this.value + ")";
+        }
+
+    }
+
+    /**
+     * Creates a temporary file for a map that is not given a file name. The
+     * file is deleted once it has been mapped, where the system allows it, and
+     * when the program ends otherwise.
+     *
+     * @return the temporary file
+     */
+    private static File temporaryFile() {
+        try {
+            File tempFile = File.createTempFile("map7-", ".dat");
+            tempFile.deleteOnExit();
+            return tempFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create temporary file", e);
+        }
+    }
+
+    /**
+     * Creator of initial representation: maps {@code mapFile}, keeping its
+     * contents if it already holds a map, and formatting it as an empty map if
+     * it is new or empty.
+     *
+     * @param mapFile
+     *            the file holding the map
+     * @requires [mapFile is new, empty, or holds a map]
+     * @ensures <pre>
+     * $this.file = mapFile  and
+     * if [mapFile held a map] then this = [that map] else this = {}
+     * </pre>
+     */
+    private void createNewRep(File mapFile) {
+        this.file = mapFile;
+        boolean holdsMap = false;
+        try {
+            this.channel = new RandomAccessFile(mapFile, "rw").getChannel();
+            long fileSize = this.channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + mapFile);
+            }
+            // Never map, let alone overwrite, a file that holds something else
+            if (fileSize != 0 && fileSize < HEADER_SIZE) {
+                throw new IllegalArgumentException("Not a Map7 file: " + mapFile);
+            }
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(fileSize, HEADER_SIZE));
+            holdsMap = fileSize != 0;
+            if (holdsMap && this.buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a Map7 file: " + mapFile);
+            }
+        } catch (IOException e) {
+            this.close();
+            throw new UncheckedIOException("Cannot map file " + mapFile, e);
+        } catch (IllegalArgumentException e) {
+            this.close();
+            throw e;
+        }
+        if (holdsMap) {
+            this.lastOccupied = this.capacity() - 1;
+        } else {
+            this.format();
+        }
+    }
+
+    /**
+     * Writes the header and an empty slot array for an empty map at the start
+     * of the file, leaving room for records after them.
+     *
+     * @ensures this = {}
+     */
+    private void format() {
+        int heapStart = HEADER_SIZE + DEFAULT_CAPACITY * SLOT_SIZE;
+        this.ensureFileSize(heapStart + INITIAL_HEAP_SIZE);
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(CAPACITY_POSITION, DEFAULT_CAPACITY);
+        this.buffer.putInt(SIZE_POSITION, 0);
+        this.buffer.putInt(SLOTS_POSITION, HEADER_SIZE);
+        this.buffer.putInt(HEAP_END_POSITION, heapStart);
+        for (int position = HEADER_SIZE; position < heapStart; position += 4) {
+            this.buffer.putInt(position, 0);
+        }
+        this.lastOccupied = DEFAULT_CAPACITY - 1;
+    }
+
+    /**
+     * Makes sure the file, and the mapping of it, span at least
+     * {@code fileSize} bytes, at least doubling them when they must grow.
+     *
+     * @param fileSize
+     *            the minimum size of the file
+     * @requires fileSize >= 0
+     * @ensures |$this.buffer| >= fileSize
+     */
+    private void ensureFileSize(long fileSize) {
+        if (fileSize > this.buffer.capacity()) {
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Map7 file would exceed 2GB: " + this.file);
+            }
+            long newSize = Math.min(Integer.MAX_VALUE,
+                    Math.max(fileSize, 2L * this.buffer.capacity()));
+            try {
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow file " + this.file, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of slots.
+     *
+     * @return the capacity
+     */
+    private int capacity() {
+        return this.buffer.getInt(CAPACITY_POSITION);
+    }
+
+    /**
+     * Returns the position in the file of slot {@code slot}.
+     *
+     * @param slot
+     *            the slot
+     * @return the position of the slot
+     */
+    private int slotPosition(int slot) {
+        return this.buffer.getInt(SLOTS_POSITION) + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Returns the offset of the record in slot {@code slot}, 0 if it is empty.
+     *
+     * @param slot
+     *            the slot
+     * @return the record offset
+     */
+    private int recordAt(int slot) {
+        return this.buffer.getInt(this.slotPosition(slot) + 4);
+    }
+
+    /**
+     * Returns the home slot of a key with hash code {@code hash}.
+     *
+     * @param hash
+     *            the hash code of the key
+     * @return the home slot
+     * @ensures homeSlot = HOME(hash, [the capacity])
+     */
+    private int homeSlot(int hash) {
+        return (hash ^ (hash >>> 16)) & (this.capacity() - 1);
+    }
+
+    /**
+     * Reads {@code length} bytes at {@code position} of the file as a UTF-8
+     * string.
+     *
+     * @param position
+     *            the position of the bytes
+     * @param length
+     *            the number of bytes
+     * @return the decoded string
+     */
+    private String stringAt(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the key of the record at {@code record}.
+     *
+     * @param record
+     *            the offset of the record
+     * @return the key
+     */
+    private String keyOf(int record) {
+        return this.stringAt(record + RECORD_HEADER_SIZE, this.buffer.getInt(record));
+    }
+
+    /**
+     * Returns the value of the record at {@code record}.
+     *
+     * @param record
+     *            the offset of the record
+     * @return the value
+     */
+    private String valueOf(int record) {
+        int keyLength = this.buffer.getInt(record);
+        return this.stringAt(record + RECORD_HEADER_SIZE + keyLength,
+                this.buffer.getInt(record + 4));
+    }
+
+    /**
+     * Reports whether the key of the record at {@code record} consists of the
+     * bytes {@code keyBytes}.
+     *
+     * @param record
+     *            the offset of the record
+     * @param keyBytes
+     *            the UTF-8 bytes of the key searched for
+     * @return true if the keys are the same
+     */
+    private boolean hasKeyBytes(int record, byte[] keyBytes) {
+        boolean same = this.buffer.getInt(record) == keyBytes.length;
+        int position = record + RECORD_HEADER_SIZE;
+        for (int i = 0; same && i < keyBytes.length; i++) {
+            same = this.buffer.get(position + i) == keyBytes[i];
+        }
+        return same;
+    }
+
+    /**
+     * Returns the slot holding the key with hash code {@code hash} and UTF-8
+     * bytes {@code keyBytes}, or the empty slot that ends its probe sequence
+     * if it is not in {@code this}.
+     *
+     * @param hash
+     *            the hash code of the key
+     * @param keyBytes
+     *            the UTF-8 bytes of the key
+     * @return the slot for the key
+     */
+    private int findSlot(int hash, byte[] keyBytes) {
+        int mask = this.capacity() - 1;
+        int slot = this.homeSlot(hash);
+        int record = this.recordAt(slot);
+        while (record != 0 && !(this.buffer.getInt(this.slotPosition(slot)) == hash
+                && this.hasKeyBytes(record, keyBytes))) {
+            slot = (slot + 1) & mask;
+            record = this.recordAt(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot that ends its
+     * probe sequence if it is not in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @return the slot for the key
+     */
+    private int findSlot(String key) {
+        return this.findSlot(key.hashCode(), key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores hash code {@code hash} and record offset {@code record} in slot
+     * {@code slot}.
+     *
+     * @param slot
+     *            the slot
+     * @param hash
+     *            the hash code of the key of the record
+     * @param record
+     *            the offset of the record, or 0 to empty the slot
+     */
+    private void setSlot(int slot, int hash, int record) {
+        int position = this.slotPosition(slot);
+        this.buffer.putInt(position, hash);
+        this.buffer.putInt(position + 4, record);
+    }
+
+    /**
+     * Empties slot {@code hole} and shifts back the rest of its probe run to
+     * keep it contiguous.
+     *
+     * @param hole
+     *            the slot to be emptied
+     * @requires 0 <= hole < [the capacity] and SLOT_RECORD(hole) /= 0
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.capacity() - 1;
+        int slot = (hole + 1) & mask;
+        int record = this.recordAt(slot);
+        while (record != 0) {
+            /*
+             * The entry in slot may fill the hole only if the hole lies
+             * between its home slot and slot itself
+             */
+            int hash = this.buffer.getInt(this.slotPosition(slot));
+            int home = this.homeSlot(hash);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                this.setSlot(hole, hash, record);
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+            record = this.recordAt(slot);
+        }
+        this.setSlot(hole, 0, 0);
+    }
+
+    /**
+     * Replaces the slot array by one twice as large, appended to the heap, and
+     * moves every slot into it using the stored hash codes.
+     *
+     * @ensures this = #this and [the capacity] = 2 * #[the capacity]
+     */
+    private void grow() {
+        int oldCapacity = this.capacity();
+        int oldSlots = this.buffer.getInt(SLOTS_POSITION);
+        int newCapacity = 2 * oldCapacity;
+        int newSlots = this.buffer.getInt(HEAP_END_POSITION);
+        int newHeapEnd = newSlots + newCapacity * SLOT_SIZE;
+        this.ensureFileSize((long) newSlots + (long) newCapacity * SLOT_SIZE);
+        for (int position = newSlots; position < newHeapEnd; position += 4) {
+            this.buffer.putInt(position, 0);
+        }
+        this.buffer.putInt(CAPACITY_POSITION, newCapacity);
+        this.buffer.putInt(SLOTS_POSITION, newSlots);
+        this.buffer.putInt(HEAP_END_POSITION, newHeapEnd);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            int position = oldSlots + i * SLOT_SIZE;
+            int record = this.buffer.getInt(position + 4);
+            if (record != 0) {
+                int hash = this.buffer.getInt(position);
+                int slot = this.homeSlot(hash);
+                while (this.recordAt(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                this.setSlot(slot, hash, record);
+            }
+        }
+        this.lastOccupied = newCapacity - 1;
+    }
+
+    /**
+     * Removes the entry in slot {@code slot} and returns it.
+     *
+     * @param slot
+     *            the slot
+     * @return the removed pair
+     * @requires SLOT_RECORD(slot) /= 0
+     */
+    private Pair<String, String> removeSlot(int slot) {
+        int record = this.recordAt(slot);
+        Pair<String, String> removedPair = new SimplePair(this.keyOf(record),
+                this.valueOf(record));
+        this.deleteSlot(slot);
+        this.buffer.putInt(SIZE_POSITION, this.buffer.getInt(SIZE_POSITION) - 1);
+        return removedPair;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor, resulting in a map kept in a temporary file.
+     */
+    public Map7() {
+        File tempFile = temporaryFile();
+        this.createNewRep(tempFile);
+        // The mapping keeps the contents alive, so no one needs the name
+        tempFile.delete();
+    }
+
+    /**
+     * Constructor resulting in a map kept in the file {@code fileName}: the map
+     * previously stored in it if there is one, and an empty one if the file is
+     * new or empty. A file holding anything else is left untouched and
+     * reported with an {@code IllegalArgumentException}.
+     *
+     * @param fileName
+     *            the name of the file holding the map
+     * @requires [fileName is new, empty, or holds a map]
+     * @ensures <pre>
+     * if [fileName holds a map] then this = [that map] else this = {}
+     * </pre>
+     */
+    public Map7(String fileName) {
+        assert fileName != null : "Violation of: fileName is not null";
+
+        this.createNewRep(new File(fileName));
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<String, String> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.format();
+    }
+
+    @Override
+    public final void transferFrom(Map<String, String> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map7 : "" + "Violation of: source is of dynamic type Map7";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        Map7 localSource = (Map7) source;
+        /*
+         * Each Map7 stays tied to its own file: the records and slots of
+         * source hold offsets from the start of its file, so copying the used
+         * part of that file to the start of this one carries them over as they
+         * are; then source is emptied in its own file
+         */
+        int used = localSource.buffer.getInt(HEAP_END_POSITION);
+        this.ensureFileSize(used);
+        ByteBuffer from = localSource.buffer.duplicate();
+        from.position(0);
+        from.limit(used);
+        ByteBuffer to = this.buffer.duplicate();
+        to.position(0);
+        to.put(from);
+        this.lastOccupied = localSource.lastOccupied;
+        localSource.clear();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, String value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        // Keep at least half of the slots empty so probe runs stay short
+        int size = this.buffer.getInt(SIZE_POSITION);
+        if (2 * (size + 1) > this.capacity()) {
+            this.grow();
+        }
+
+        // Append the record to the heap
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int record = this.buffer.getInt(HEAP_END_POSITION);
+        long heapEnd = (long) record + RECORD_HEADER_SIZE + keyBytes.length
+                + valueBytes.length;
+        this.ensureFileSize(heapEnd);
+        this.buffer.putInt(record, keyBytes.length);
+        this.buffer.putInt(record + 4, valueBytes.length);
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(record + RECORD_HEADER_SIZE);
+        view.put(keyBytes);
+        view.put(valueBytes);
+        this.buffer.putInt(HEAP_END_POSITION, (int) heapEnd);
+
+        // Point the key's slot at it
+        int hash = key.hashCode();
+        int slot = this.findSlot(hash, keyBytes);
+        this.setSlot(slot, hash, record);
+        this.buffer.putInt(SIZE_POSITION, size + 1);
+        if (slot > this.lastOccupied) {
+            this.lastOccupied = slot;
+        }
+    }
+
+    @Override
+    public final Pair<String, String> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.removeSlot(this.findSlot(key));
+    }
+
+    @Override
+    public final Pair<String, String> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        /*
+         * Take the entry in the last occupied slot; shifting back the rest of
+         * its probe run can only refill slots at or below it, so the next call
+         * can resume the search from here
+         */
+        while (this.recordAt(this.lastOccupied) == 0) {
+            this.lastOccupied--;
+        }
+        return this.removeSlot(this.lastOccupied);
+    }
+
+    @Override
+    public final String value(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.valueOf(this.recordAt(this.findSlot(key)));
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.recordAt(this.findSlot(key)) != 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.buffer.getInt(SIZE_POSITION);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Writes any changes to the map that are still only in memory to the file.
+     */
+    public final void force() {
+        this.buffer.force();
+    }
+
+    /**
+     * Releases the file holding the map, after which {@code this} must not be
+     * used. Changes still only in memory reach the file when the operating
+     * system writes the mapped pages back.
+     */
+    public final void close() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close file " + this.file, e);
+            }
+            this.channel = null;
+        }
+    }
+
+    @Override
+    public final Iterator<Pair<String, String>> iterator() {
+        return new Map7Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map7}.
+     */
+    private final class Map7Iterator implements Iterator<Pair<String, String>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to look for the next element.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        Map7Iterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map7.this.size();
+        }
+
+        @Override
+        public Pair<String, String> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            int record = Map7.this.recordAt(this.currentSlot);
+            while (record == 0) {
+                this.currentSlot++;
+                record = Map7.this.recordAt(this.currentSlot);
+            }
+            this.currentSlot++;
+            return new SimplePair(Map7.this.keyOf(record), Map7.this.valueOf(record));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
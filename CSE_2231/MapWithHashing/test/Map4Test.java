@@ -1,4 +1,13 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+
+import org.junit.Test;
+
 import components.map.Map;
+import components.map.Map.Pair;
 import components.map.Map1L;
 
 /**
@@ -16,4 +25,96 @@ public class Map4Test extends MapTest {
         return new Map1L<String, String>();
     }
 
+    /**
+     * Tests bulk-loading pairs, with an exact and with a too small expected
+     * count.
+     */
+    @Test
+    public void testAddAll() {
+        Map<String, String> source = this.constructorRef();
+        for (int i = 0; i < 5000; i++) {
+            source.add("k" + i, "v" + i);
+        }
+        Map4<String, String> map = new Map4<>();
+        map.addAll(source, source.size());
+        assertEquals(source, map);
+
+        Map4<String, String> smallMap = new Map4<>();
+        smallMap.add("A", "1");
+        smallMap.addAll(source, 10);
+        source.add("A", "1");
+        assertEquals(source, smallMap);
+    }
+
+    /**
+     * Tests filtering a map in one pass with the iterator's remove.
+     */
+    @Test
+    public void testIteratorRemove() {
+        Map<String, String> map = this.constructorTest();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < 300; i++) {
+            map.add("k" + i, Integer.toString(i % 3));
+            if (i % 3 != 0) {
+                mapExpected.add("k" + i, Integer.toString(i % 3));
+            }
+        }
+        int seen = 0;
+        Iterator<Pair<String, String>> it = map.iterator();
+        while (it.hasNext()) {
+            Pair<String, String> pair = it.next();
+            seen++;
+            if (pair.value().equals("0")) {
+                it.remove();
+            }
+        }
+        assertEquals(300, seen);
+        assertEquals(mapExpected, map);
+        assertFalse(map.hasKey("k3"));
+    }
+
+    /**
+     * Tests that calling remove twice for the same element is rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testIteratorRemoveTwice() {
+        Map<String, String> map = this.constructorTest();
+        map.add("A", "1");
+        map.add("B", "2");
+        Iterator<Pair<String, String>> it = map.iterator();
+        it.next();
+        it.remove();
+        it.remove();
+    }
+
+    /**
+     * Tests that changing the map during an iteration is detected.
+     */
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorFailFast() {
+        Map<String, String> map = this.constructorTest();
+        map.add("A", "1");
+        map.add("B", "2");
+        Iterator<Pair<String, String>> it = map.iterator();
+        it.next();
+        map.add("C", "3");
+        it.next();
+    }
+
+    /**
+     * Tests that ensureCapacity with room to spare does not disturb an
+     * iteration in progress.
+     */
+    @Test
+    public void testEnsureCapacityNoOpKeepsIterator() {
+        Map4<String, String> map = (Map4<String, String>) this.constructorTest();
+        map.add("A", "1");
+        map.add("B", "2");
+        Iterator<Pair<String, String>> it = map.iterator();
+        it.next();
+        map.ensureCapacity(2);
+        it.next();
+        assertFalse(it.hasNext());
+    }
+
 }
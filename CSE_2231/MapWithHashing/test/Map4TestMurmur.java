@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using the MurmurHash3
+ * hash-spreading function, with tests of the bucket statistics.
+ */
+public class Map4TestMurmur extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Load factor to be used in tests.
+     */
+    private static final double TEST_LOAD_FACTOR = 0.75;
+
+    /**
+     * Number of keys used by the statistics tests.
+     */
+    private static final int TEST_ENTRIES = 50;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR,
+                Map4.MURMUR_SPREADER);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests the statistics of a map whose keys all land in one bucket.
+     */
+    @Test
+    public void testStatisticsOneHotBucket() {
+        Map4<Integer, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR);
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add(i * TEST_HASH_TABLE_SIZE, "v");
+        }
+        int[] histogram = new int[TEST_ENTRIES + 1];
+        histogram[0] = TEST_HASH_TABLE_SIZE - 1;
+        histogram[TEST_ENTRIES] = 1;
+        assertArrayEquals(histogram, map.bucketLengthHistogram());
+        assertEquals(TEST_ENTRIES, map.maxChainLength());
+        assertEquals((TEST_ENTRIES + 1) / 2.0, map.averageProbeCost(), 1e-9);
+    }
+
+    /**
+     * Tests that spreading the same clustered keys breaks up the hot bucket.
+     */
+    @Test
+    public void testStatisticsSpread() {
+        Map4<Integer, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR,
+                Map4.MURMUR_SPREADER);
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add(i * TEST_HASH_TABLE_SIZE, "v");
+        }
+        assertTrue(map.maxChainLength() < TEST_ENTRIES / 5);
+        assertTrue(map.averageProbeCost() < 2);
+    }
+
+    /**
+     * Tests the statistics of an empty map.
+     */
+    @Test
+    public void testStatisticsEmpty() {
+        Map4<String, String> map = new Map4<>();
+        assertEquals(0, map.maxChainLength());
+        assertEquals(0, map.averageProbeCost(), 0);
+        assertArrayEquals(new int[] { TEST_HASH_TABLE_SIZE }, map.bucketLengthHistogram());
+    }
+
+}
@@ -0,0 +1,65 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using a hash table of size 1
+ * and a small load factor, so that the table is rehashed (grown and shrunk)
+ * while the tests run.
+ */
+public class Map4TestResize extends MapTest {
+
+    /**
+     * Initial size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 1;
+
+    /**
+     * Load factor to be used in tests.
+     */
+    private static final double TEST_LOAD_FACTOR = 0.5;
+
+    /**
+     * Number of entries used by the growth test.
+     */
+    private static final int TEST_ENTRIES = 2000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests adding and then removing enough pairs to grow the table several
+     * times and shrink it back.
+     */
+    @Test
+    public void testGrowAndShrink() {
+        Map<String, String> map = this.constructorTest();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+            mapExpected.add("k" + i, "v" + i);
+        }
+        assertEquals(mapExpected, map);
+        for (int i = 0; i < TEST_ENTRIES; i += 2) {
+            assertEquals("v" + i, map.remove("k" + i).value());
+            mapExpected.remove("k" + i);
+        }
+        assertEquals(mapExpected, map);
+        while (map.size() > 0) {
+            String key = map.removeAny().key();
+            mapExpected.remove(key);
+        }
+        assertEquals(mapExpected, map);
+    }
+
+}
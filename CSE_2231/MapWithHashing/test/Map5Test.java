@@ -0,0 +1,117 @@
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map5}.
+ */
+public class Map5Test extends MapTest {
+
+    /**
+     * Number of entries used by the growth test.
+     */
+    private static final int TEST_ENTRIES = 2000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map5<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Reports the number of slots in {@code map}'s table.
+     *
+     * @param map
+     *            the map to inspect
+     * @return the length of {@code map}'s key array
+     */
+    private static int slots(Map<String, String> map) {
+        try {
+            Field keys = Map5.class.getDeclaredField("keys");
+            keys.setAccessible(true);
+            return ((Object[]) keys.get(map)).length;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("Cannot read the table of " + map, e);
+        }
+    }
+
+    /**
+     * Tests that a presized map keeps its initial capacity across clear,
+     * transferFrom and newInstance, and that a grown map shrinks back to it.
+     */
+    @Test
+    public void testPresizedCapacityKept() {
+        Map<String, String> map = new Map5<String, String>(TEST_ENTRIES);
+        int initial = slots(map);
+        for (int i = 0; i < 4 * TEST_ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        map.clear();
+        assertEquals(initial, slots(map));
+        map.add("a", "b");
+        Map<String, String> copy = map.newInstance();
+        assertEquals(initial, slots(copy));
+        copy.transferFrom(map);
+        assertEquals(initial, slots(map));
+        assertEquals(initial, slots(copy));
+        assertEquals("b", copy.value("a"));
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * Tests adding enough pairs to grow the table, then removing half of them
+     * and draining the rest.
+     */
+    @Test
+    public void testGrowAndRemove() {
+        Map<String, String> map = this.constructorTest();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+            mapExpected.add("k" + i, "v" + i);
+        }
+        assertEquals(mapExpected, map);
+        for (int i = 0; i < TEST_ENTRIES; i += 2) {
+            assertEquals("v" + i, map.remove("k" + i).value());
+            mapExpected.remove("k" + i);
+        }
+        assertEquals(mapExpected, map);
+        while (map.size() > 0) {
+            String key = map.removeAny().key();
+            mapExpected.remove(key);
+        }
+        assertEquals(mapExpected, map);
+    }
+
+    /**
+     * Tests removing from the middle of a probe run of keys that all have the
+     * same hash code ("Aa" and "BB" collide, and so do their concatenations).
+     */
+    @Test
+    public void testRemoveCollidingKeys() {
+        String[] keys = { "AaAa", "AaBB", "BBAa", "BBBB" };
+        Map<String, String> map = this.constructorTest();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (String key : keys) {
+            map.add(key, key.toLowerCase());
+            mapExpected.add(key, key.toLowerCase());
+        }
+        map.remove("AaBB");
+        mapExpected.remove("AaBB");
+        assertEquals(mapExpected, map);
+        assertEquals("bbbb", map.value("BBBB"));
+        map.remove("AaAa");
+        mapExpected.remove("AaAa");
+        assertEquals(mapExpected, map);
+    }
+
+}
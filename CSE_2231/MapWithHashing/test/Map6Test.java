@@ -0,0 +1,105 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map6}.
+ */
+public class Map6Test extends MapTest {
+
+    /**
+     * Number of threads used by the concurrent tests.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of keys each thread works on in the concurrent tests.
+     */
+    private static final int KEYS_PER_THREAD = 5000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map6<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Runs {@code task} on {@code THREADS} threads, passing each its number,
+     * waits for all of them to finish, and rethrows the first failure of any
+     * of them, so that assertions failing in a thread fail the test.
+     *
+     * @param task
+     *            the work of one thread
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void runThreads(IntConsumer task) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int number = t;
+            threads[t] = new Thread(() -> task.accept(number));
+            threads[t].setUncaughtExceptionHandler(
+                    (thread, e) -> failure.compareAndSet(null, e));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("A worker thread failed", failure.get());
+        }
+    }
+
+    /**
+     * Tests several threads adding and removing disjoint keys at once.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test
+    public void testConcurrentAddRemove() throws InterruptedException {
+        Map6<String, String> map = new Map6<>();
+        runThreads(t -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                map.add(t + "-" + i, "v" + i);
+            }
+            for (int i = 0; i < KEYS_PER_THREAD; i += 2) {
+                map.remove(t + "-" + i);
+            }
+        });
+        assertEquals(THREADS * KEYS_PER_THREAD / 2, map.size());
+        for (int t = 0; t < THREADS; t++) {
+            assertEquals("v1", map.value(t + "-1"));
+        }
+    }
+
+    /**
+     * Tests several threads counting the same keys at once with merge.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test
+    public void testConcurrentMerge() throws InterruptedException {
+        Map6<String, Integer> counts = new Map6<>();
+        runThreads(t -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                counts.merge("k" + (i % 100), 1, Integer::sum);
+            }
+        });
+        assertEquals(100, counts.size());
+        assertEquals(THREADS * KEYS_PER_THREAD / 100, (int) counts.value("k7"));
+    }
+
+}
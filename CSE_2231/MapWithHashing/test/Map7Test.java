@@ -0,0 +1,143 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map7}.
+ */
+public class Map7Test extends MapTest {
+
+    /**
+     * Number of entries used by the growth and persistence tests.
+     */
+    private static final int TEST_ENTRIES = 5000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map7();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests adding enough pairs to grow the slot array and the file, with
+     * non-ASCII keys and values, then removing half of them.
+     */
+    @Test
+    public void testGrowAndRemove() {
+        Map<String, String> map = this.constructorTest();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add("cl\u00e9" + i, "\u00e9t\u00e9 " + i);
+            mapExpected.add("cl\u00e9" + i, "\u00e9t\u00e9 " + i);
+        }
+        assertEquals(mapExpected, map);
+        for (int i = 0; i < TEST_ENTRIES; i += 2) {
+            assertEquals("\u00e9t\u00e9 " + i, map.remove("cl\u00e9" + i).value());
+            mapExpected.remove("cl\u00e9" + i);
+        }
+        assertEquals(mapExpected, map);
+        while (map.size() > 0) {
+            String key = map.removeAny().key();
+            mapExpected.remove(key);
+        }
+        assertEquals(mapExpected, map);
+    }
+
+    /**
+     * Tests that a map written to a file is found again, unchanged, when the
+     * file is opened by another {@code Map7}.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be created
+     */
+    @Test
+    public void testReopen() throws IOException {
+        File file = File.createTempFile("map7test-", ".dat");
+        file.deleteOnExit();
+        Map7 map = new Map7(file.getPath());
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+            mapExpected.add("k" + i, "v" + i);
+        }
+        map.remove("k0");
+        mapExpected.remove("k0");
+        map.force();
+        map.close();
+        Map7 reopened = new Map7(file.getPath());
+        assertEquals(mapExpected, reopened);
+        reopened.add("k0", "again");
+        mapExpected.add("k0", "again");
+        assertEquals(mapExpected, reopened);
+        reopened.close();
+    }
+
+    /**
+     * Tests that a file holding something other than a map is rejected and
+     * left as it was.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written or read
+     */
+    @Test
+    public void testForeignFileUntouched() throws IOException {
+        File file = File.createTempFile("map7test-", ".txt");
+        file.deleteOnExit();
+        byte[] contents = "not a map".getBytes(StandardCharsets.US_ASCII);
+        Files.write(file.toPath(), contents);
+        try {
+            new Map7(file.getPath());
+            fail("Map7 accepted a file that does not hold a map");
+        } catch (IllegalArgumentException e) {
+            assertArrayEquals(contents, Files.readAllBytes(file.toPath()));
+        }
+    }
+
+    /**
+     * Tests that transferFrom into a map opened on a named file persists the
+     * transferred entries in that file, and leaves the source empty and
+     * usable.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be created
+     */
+    @Test
+    public void testTransferFromPersists() throws IOException {
+        File file = File.createTempFile("map7test-", ".dat");
+        file.deleteOnExit();
+        Map7 named = new Map7(file.getPath());
+        named.add("old", "entry");
+        Map7 source = new Map7();
+        Map<String, String> mapExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            source.add("k" + i, "v" + i);
+            mapExpected.add("k" + i, "v" + i);
+        }
+        named.transferFrom(source);
+        assertEquals(mapExpected, named);
+        assertEquals(0, source.size());
+        source.add("k", "v");
+        assertEquals("v", source.value("k"));
+        named.force();
+        named.close();
+        source.close();
+        Map7 reopened = new Map7(file.getPath());
+        assertEquals(mapExpected, reopened);
+        reopened.close();
+    }
+
+}
@@ -0,0 +1,115 @@
+import java.util.function.Supplier;
+
+import components.queue.Queue;
+
+/**
+ * Measures the throughput of {@code Queue4} (blocking, with a lock) and
+ * {@code Queue5} (lock-free) with 1, 4 and 16 producer threads and as many
+ * consumer threads sharing one queue of capacity {@value #CAPACITY}, and
+ * prints the number of entries passed through per millisecond.
+ * <p>
+ * Usage: {@code QueueThroughputBenchmark [entriesPerProducer]}; the default is
+ * {@value #DEFAULT_ENTRIES}.
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ */
+public final class QueueThroughputBenchmark {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private QueueThroughputBenchmark() {
+    }
+
+    /**
+     * Default number of entries enqueued by each producer.
+     */
+    private static final int DEFAULT_ENTRIES = 200000;
+
+    /**
+     * Numbers of producer (and of consumer) threads to measure.
+     */
+    private static final int[] THREAD_COUNTS = { 1, 4, 16 };
+
+    /**
+     * Capacity of the queues.
+     */
+    private static final int CAPACITY = 1024;
+
+    /**
+     * Number of untimed runs before each measurement.
+     */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /**
+     * Passes {@code entries} entries from each of {@code threadCount}
+     * producers to {@code threadCount} consumers through a queue made by
+     * {@code factory} and returns the elapsed time in nanoseconds.
+     *
+     * @param factory
+     *            makes the queue
+     * @param threadCount
+     *            the number of producers, and of consumers
+     * @param entries
+     *            the number of entries per producer
+     * @return the elapsed time
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    private static long run(Supplier<Queue<Integer>> factory, int threadCount,
+            int entries) throws InterruptedException {
+        Queue<Integer> q = factory.get();
+        Thread[] threads = new Thread[2 * threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < entries; i++) {
+                    q.enqueue(i);
+                }
+            });
+            threads[threadCount + t] = new Thread(() -> {
+                for (int i = 0; i < entries; i++) {
+                    q.dequeue();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: number of entries per producer
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int entries = DEFAULT_ENTRIES;
+        if (args.length > 0) {
+            entries = Integer.parseInt(args[0]);
+        }
+        Supplier<Queue<Integer>> blocking = () -> new Queue4<Integer>(CAPACITY);
+        Supplier<Queue<Integer>> lockFree = () -> new Queue5<Integer>(CAPACITY);
+        System.out.printf("%8s %22s %22s%n", "threads", "Queue4 (entries/ms)",
+                "Queue5 (entries/ms)");
+        for (int threadCount : THREAD_COUNTS) {
+            for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+                run(blocking, threadCount, entries);
+                run(lockFree, threadCount, entries);
+            }
+            long total = (long) threadCount * entries;
+            long blockingTime = run(blocking, threadCount, entries);
+            long lockFreeTime = run(lockFree, threadCount, entries);
+            System.out.printf("%8d %22.0f %22.0f%n", threadCount,
+                    total * 1e6 / blockingTime, total * 1e6 / lockFreeTime);
+        }
+    }
+
+}
@@ -1,17 +1,52 @@
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import components.queue.Queue;
 import components.queue.QueueSecondary;
-import components.sequence.Sequence;
-import components.sequence.Sequence1L;
 
 /**
- * {@code Queue} represented as a {@code Sequence} of entries, with
- * implementations of primary methods.
+ * {@code Queue} represented as a singly linked chain of array chunks, each
+ * holding a run of consecutive entries, with implementations of primary
+ * methods.
+ * <p>
+ * {@code enqueue} fills the last chunk and adds a new one when it is full, and
+ * {@code dequeue} empties the first chunk and unlinks it when it is empty, so
+ * both take O(1) time and allocate nothing per entry. Because the entries are
+ * not kept in one array, {@code append} of another {@code Queue3} splices its
+ * chain onto this one in O(1) time, and {@code splitAt} cuts the chain in time
+ * proportional to the number of chunks before the cut: the chunk holding the
+ * cut is divided into two chunks sharing its array, so no entry is copied. A
+ * queue created with {@code shrinkOnDrain} set lets go of its emptied chunks;
+ * otherwise they are kept for reuse, so a queue that once held many entries
+ * keeps their space.
  *
  * @param <T>
  *            type of {@code Queue} entries
- * @correspondence this = $this.entries
+ * @convention <pre>
+ * $this.chunkCapacity > 0  and
+ * [$this.first is not null, $this.last is reachable from $this.first by
+ *  following next, and $this.last.next is null]  and
+ * [for every chunk c from $this.first to $this.last,
+ *  0 <= c.base <= c.start <= c.end <= c.limit <= |c.items|, the positions
+ *  of c.items from c.start to c.end - 1 are not null, and the others from
+ *  c.base to c.limit - 1 are null]  and
+ * [no two chunks own overlapping positions of the same array]  and
+ * [every chunk from $this.first to $this.last is not empty, unless it is
+ *  the only one]  and
+ * $this.length = [the sum of c.end - c.start over those chunks]  and
+ * [every chunk on the $this.spare list is empty, owns all of its array of
+ *  $this.chunkCapacity entries, and is not shared with another chunk]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the entries of c.items from position c.start to c.end - 1, for
+ *         every chunk c from $this.first to $this.last, in that order]
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
  */
 public class Queue3<T> extends QueueSecondary<T> {
 
@@ -20,15 +55,216 @@ public class Queue3<T> extends QueueSecondary<T> {
      */
 
     /**
-     * Entries included in {@code this}.
+     * Default number of entries in a new chunk.
+     */
+    private static final int DEFAULT_CHUNK_CAPACITY = 64;
+
+    /**
+     * Chunk of consecutive entries, owning positions {@code base} to
+     * {@code limit - 1} of {@code items}.
+     */
+    private final class Chunk {
+
+        /**
+         * Array holding the entries; shared with another chunk after a split.
+         */
+        private final T[] items;
+
+        /**
+         * First position of {@code items} owned by this chunk.
+         */
+        private int base;
+
+        /**
+         * Position of the first entry.
+         */
+        private int start;
+
+        /**
+         * Position just past the last entry.
+         */
+        private int end;
+
+        /**
+         * Position just past the last one owned by this chunk.
+         */
+        private int limit;
+
+        /**
+         * Next chunk in the chain.
+         */
+        private Chunk next;
+
+        /**
+         * Constructor from the array.
+         *
+         * @param items
+         *            the array, all owned by this chunk
+         */
+        Chunk(T[] items) {
+            this.items = items;
+            this.base = 0;
+            this.start = 0;
+            this.end = 0;
+            this.limit = items.length;
+            this.next = null;
+        }
+
+    }
+
+    /**
+     * First chunk of the chain.
+     */
+    private Chunk first;
+
+    /**
+     * Last chunk of the chain, where entries are added.
+     */
+    private Chunk last;
+
+    /**
+     * Number of entries in {@code this}.
+     */
+    private int length;
+
+    /**
+     * Emptied chunks kept for reuse, linked through {@code next}.
+     */
+    private Chunk spare;
+
+    /**
+     * Number of entries in a new chunk.
+     */
+    private int chunkCapacity;
+
+    /**
+     * Whether emptied chunks are let go instead of kept for reuse.
+     */
+    private boolean shrinkOnDrain;
+
+    /**
+     * Returns a new array of {@code capacity} entries.
+     *
+     * @param capacity
+     *            the capacity
+     * @return the new array
+     */
+    @SuppressWarnings("unchecked")
+    private T[] newArray(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    /**
+     * Returns an empty chunk with room for {@code capacity} entries, reusing a
+     * spare one when it is large enough.
+     *
+     * @param capacity
+     *            the number of entries needed
+     * @return the chunk
+     * @requires capacity > 0
+     * @ensures newChunk.limit - newChunk.start >= capacity
      */
-    private Sequence<T> entries;
+    private Chunk newChunk(int capacity) {
+        Chunk chunk;
+        if (this.spare != null && capacity <= this.chunkCapacity) {
+            chunk = this.spare;
+            this.spare = chunk.next;
+            chunk.next = null;
+        } else {
+            chunk = new Chunk(this.newArray(Math.max(capacity, this.chunkCapacity)));
+        }
+        return chunk;
+    }
+
+    /**
+     * Keeps the unlinked, empty {@code chunk} for reuse, unless {@code this}
+     * shrinks on drain or the chunk does not own all of an array of the usual
+     * size.
+     *
+     * @param chunk
+     *            the chunk
+     * @requires [chunk is empty and not in the chain]
+     */
+    private void release(Chunk chunk) {
+        if (!this.shrinkOnDrain && chunk.base == 0
+                && chunk.limit == chunk.items.length
+                && chunk.items.length == this.chunkCapacity) {
+            chunk.start = 0;
+            chunk.end = 0;
+            chunk.next = this.spare;
+            this.spare = chunk;
+        }
+    }
+
+    /**
+     * Unlinks the first chunk if it has been emptied and is not the only one;
+     * if it is the only one, moves its entries back to its first position.
+     *
+     * @ensures this = #this
+     */
+    private void dropFirstIfEmpty() {
+        Chunk front = this.first;
+        if (front.start == front.end) {
+            if (front == this.last) {
+                front.start = front.base;
+                front.end = front.base;
+            } else {
+                this.first = front.next;
+                front.next = null;
+                this.release(front);
+            }
+        }
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off;
+     *         otherwise reports a violated assertion)
+     * @convention <pre>
+     * [$this.last is reachable from $this.first by following next, and
+     *  $this.last.next is null]  and
+     * [for every chunk c from $this.first to $this.last,
+     *  0 <= c.base <= c.start <= c.end <= c.limit <= |c.items|]  and
+     * [every chunk from $this.first to $this.last is not empty, unless it is
+     *  the only one]  and
+     * $this.length = [the sum of c.end - c.start over those chunks]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        int count = 0;
+        Chunk chunk = this.first;
+        Chunk previous = null;
+        while (chunk != null) {
+            assert 0 <= chunk.base && chunk.base <= chunk.start
+                    && chunk.start <= chunk.end && chunk.end <= chunk.limit
+                    && chunk.limit <= chunk.items.length
+                    : "Violation of: 0 <= c.base <= c.start <= c.end"
+                            + " <= c.limit <= |c.items|";
+            assert chunk.start < chunk.end
+                    || (chunk == this.first && chunk.next == null)
+                    : "Violation of: [every chunk is not empty,"
+                            + " unless it is the only one]";
+            count += chunk.end - chunk.start;
+            previous = chunk;
+            chunk = chunk.next;
+        }
+        assert previous == this.last
+                : "Violation of: [$this.last is the end of the chain]";
+        assert count == this.length
+                : "Violation of: $this.length = [the number of entries]";
+        return true;
+    }
 
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
-        this.entries = new Sequence1L<T>();
+        this.spare = null;
+        this.first = this.newChunk(this.chunkCapacity);
+        this.last = this.first;
+        this.length = 0;
     }
 
     /*
@@ -39,7 +275,24 @@ public class Queue3<T> extends QueueSecondary<T> {
      * No-argument constructor.
      */
     public Queue3() {
+        this(DEFAULT_CHUNK_CAPACITY, false);
+    }
+
+    /**
+     * Constructor from the chunk capacity and shrinking policy.
+     *
+     * @param chunkCapacity
+     *            the number of entries in a new chunk
+     * @param shrinkOnDrain
+     *            whether emptied chunks are let go instead of kept for reuse
+     */
+    public Queue3(int chunkCapacity, boolean shrinkOnDrain) {
+        assert chunkCapacity > 0 : "Violation of: chunkCapacity > 0";
+
+        this.chunkCapacity = chunkCapacity;
+        this.shrinkOnDrain = shrinkOnDrain;
         this.createNewRep();
+        assert this.conventionHolds();
     }
 
     /*
@@ -50,7 +303,8 @@ public class Queue3<T> extends QueueSecondary<T> {
     @Override
     public final Queue<T> newInstance() {
         try {
-            return this.getClass().getConstructor().newInstance();
+            return this.getClass().getConstructor(int.class, boolean.class)
+                    .newInstance(this.chunkCapacity, this.shrinkOnDrain);
         } catch (ReflectiveOperationException e) {
             throw new AssertionError(
                     "Cannot construct object of type " + this.getClass());
@@ -74,8 +328,14 @@ public class Queue3<T> extends QueueSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Queue3<T> localSource = (Queue3<T>) source;
-        this.entries = localSource.entries;
+        this.first = localSource.first;
+        this.last = localSource.last;
+        this.length = localSource.length;
+        this.spare = localSource.spare;
+        this.chunkCapacity = localSource.chunkCapacity;
+        this.shrinkOnDrain = localSource.shrinkOnDrain;
         localSource.createNewRep();
+        assert this.conventionHolds();
     }
 
     /*
@@ -86,32 +346,330 @@ public class Queue3<T> extends QueueSecondary<T> {
     public final void enqueue(T x) {
         assert x != null : "Violation of: x is not null";
 
-        // TODO - fill in body
-
+        if (this.last.end == this.last.limit) {
+            Chunk chunk = this.newChunk(this.chunkCapacity);
+            this.last.next = chunk;
+            this.last = chunk;
+        }
+        this.last.items[this.last.end] = x;
+        this.last.end++;
+        this.length++;
     }
 
     @Override
     public final T dequeue() {
         assert this.length() > 0 : "Violation of: this /= <>";
 
-        // TODO - fill in body
-
-        // This line added just to make the component compilable.
-        return null;
+        Chunk front = this.first;
+        T x = front.items[front.start];
+        // Clear the slot so the queue does not keep the entry alive
+        front.items[front.start] = null;
+        front.start++;
+        this.length--;
+        this.dropFirstIfEmpty();
+        return x;
     }
 
     @Override
     public final int length() {
+        return this.length;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Queue3Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Queue3}.
+     */
+    private final class Queue3Iterator implements Iterator<T> {
+
+        /**
+         * Number of entries seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Chunk holding the next entry.
+         */
+        private Chunk chunk;
+
+        /**
+         * Position of the next entry in {@code chunk}.
+         */
+        private int position;
+
+        /**
+         * No-argument constructor.
+         */
+        Queue3Iterator() {
+            this.numberSeen = 0;
+            this.chunk = Queue3.this.first;
+            this.position = this.chunk.start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Queue3.this.length;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            if (this.position == this.chunk.end) {
+                this.chunk = this.chunk.next;
+                this.position = this.chunk.start;
+            }
+            T x = this.chunk.items[this.position];
+            this.position++;
+            this.numberSeen++;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports whether no entry of {@code items} is null.
+     *
+     * @param items
+     *            the array to check
+     * @return true if all entries are not null
+     */
+    private static boolean noNulls(Object[] items) {
+        boolean result = true;
+        for (int i = 0; result && i < items.length; i++) {
+            result = items[i] != null;
+        }
+        return result;
+    }
+
+    /**
+     * Adds all of {@code items}, in order, at the end of {@code this}. When
+     * {@code items} is a {@code Collection} the entries are copied in at most
+     * two runs: one filling the last chunk and one into a single new chunk.
+     *
+     * @param items
+     *            the entries to be added
+     * @aliases references in {@code items}
+     * @updates this
+     * @requires [no entry of items is null]
+     * @ensures <pre>
+     * this = #this * [the entries of #items, in iteration order]
+     * </pre>
+     */
+    public final void enqueueAll(Iterable<? extends T> items) {
+        assert items != null : "Violation of: items is not null";
+
+        if (items instanceof Collection<?>) {
+            Object[] array = ((Collection<?>) items).toArray();
+            assert noNulls(array) : "Violation of: [no entry of items is null]";
+            int firstRun = Math.min(array.length, this.last.limit - this.last.end);
+            System.arraycopy(array, 0, this.last.items, this.last.end, firstRun);
+            this.last.end += firstRun;
+            int secondRun = array.length - firstRun;
+            if (secondRun > 0) {
+                Chunk chunk = this.newChunk(secondRun);
+                System.arraycopy(array, firstRun, chunk.items, 0, secondRun);
+                chunk.end = secondRun;
+                this.last.next = chunk;
+                this.last = chunk;
+            }
+            this.length += array.length;
+        } else {
+            /*
+             * Stop after the entries items had to begin with, in case items
+             * is this and grows as they are added
+             */
+            Iterator<? extends T> it = items.iterator();
+            int count = Integer.MAX_VALUE;
+            if (items == this) {
+                count = this.length;
+            }
+            for (int i = 0; i < count && it.hasNext(); i++) {
+                this.enqueue(it.next());
+            }
+        }
+    }
+
+    /**
+     * Removes up to {@code max} entries from the front of {@code this} and adds
+     * them, in order, to {@code c}, copying them in one run per chunk.
+     *
+     * @param c
+     *            the collection receiving the entries
+     * @param max
+     *            the maximum number of entries to move
+     * @return the number of entries moved
+     * @updates this, c
+     * @requires max >= 0
+     * @ensures <pre>
+     * drainTo = min(max, |#this|)  and
+     * #this = [the first drainTo entries of #this] * this  and
+     * [those entries have been added to c, in order]
+     * </pre>
+     */
+    public final int drainTo(Collection<? super T> c, int max) {
+        assert c != null : "Violation of: c is not null";
+        assert max >= 0 : "Violation of: max >= 0";
 
-        // TODO - fill in body
+        int count = Math.min(max, this.length);
+        int remaining = count;
+        while (remaining > 0) {
+            Chunk front = this.first;
+            int run = Math.min(remaining, front.end - front.start);
+            List<T> buffer = Arrays.asList(front.items);
+            c.addAll(buffer.subList(front.start, front.start + run));
+            // Clear the slots so the queue does not keep the entries alive
+            Arrays.fill(front.items, front.start, front.start + run, null);
+            front.start += run;
+            this.length -= run;
+            remaining -= run;
+            this.dropFirstIfEmpty();
+        }
+        return count;
+    }
 
-        // This line added just to make the component compilable.
-        return 0;
+    /**
+     * Splits {@code this} at position {@code pos}: {@code this} keeps its
+     * first {@code pos} entries, and the rest are returned in a new queue
+     * with the same chunk capacity and shrinking policy. No entry is copied,
+     * and the time taken is proportional to the number of chunks before the
+     * cut.
+     *
+     * @param pos
+     *            the number of entries {@code this} keeps
+     * @return the entries after the first {@code pos}
+     * @updates this
+     * @requires 0 <= pos <= |this|
+     * @ensures #this = this * splitAt and |this| = pos
+     */
+    public final Queue3<T> splitAt(int pos) {
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos <= this.length() : "Violation of: pos <= |this|";
+
+        Queue3<T> rest = new Queue3<T>(this.chunkCapacity, this.shrinkOnDrain);
+        if (pos == 0) {
+            // Hand over the whole chain, keeping the empty chunk of rest
+            Chunk empty = rest.first;
+            rest.first = this.first;
+            rest.last = this.last;
+            rest.length = this.length;
+            this.first = empty;
+            this.last = empty;
+            this.length = 0;
+        } else if (pos < this.length) {
+            Chunk previous = null;
+            Chunk chunk = this.first;
+            int skipped = 0;
+            while (skipped + chunk.end - chunk.start <= pos) {
+                skipped += chunk.end - chunk.start;
+                previous = chunk;
+                chunk = chunk.next;
+            }
+            if (skipped == pos) {
+                // The cut falls between previous and chunk: unlink them
+                previous.next = null;
+                rest.first = chunk;
+                rest.last = this.last;
+                this.last = previous;
+            } else {
+                /*
+                 * The cut falls strictly inside chunk: divide it into two
+                 * chunks sharing its array, the second owning the positions
+                 * from the cut on
+                 */
+                int cut = chunk.start + (pos - skipped);
+                Chunk tail = new Chunk(chunk.items);
+                tail.base = cut;
+                tail.start = cut;
+                tail.end = chunk.end;
+                tail.limit = chunk.limit;
+                tail.next = chunk.next;
+                chunk.end = cut;
+                chunk.limit = cut;
+                chunk.next = null;
+                rest.first = tail;
+                if (this.last == chunk) {
+                    rest.last = tail;
+                } else {
+                    rest.last = this.last;
+                }
+                this.last = chunk;
+            }
+            rest.length = this.length - pos;
+            this.length = pos;
+        }
+        assert this.conventionHolds();
+        assert rest.conventionHolds();
+        return rest;
     }
 
+    /*
+     * Other methods (overridden for performance reasons) ---------------------
+     */
+
     @Override
-    public final Iterator<T> iterator() {
-        return this.entries.iterator();
+    public final T front() {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        return this.first.items[this.first.start];
+    }
+
+    @Override
+    public final T replaceFront(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        T front = this.first.items[this.first.start];
+        this.first.items[this.first.start] = x;
+        return front;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When {@code q} is a {@code Queue3}, its chain of chunks is spliced onto
+     * the end of this one in O(1) time.
+     */
+    @Override
+    public final void append(Queue<T> q) {
+        assert q != null : "Violation of: q is not null";
+        assert q != this : "Violation of: q is not this";
+
+        if (q instanceof Queue3<?>) {
+            Queue3<T> localQ = (Queue3<T>) q;
+            if (localQ.length > 0) {
+                if (this.length == 0) {
+                    this.release(this.first);
+                    this.first = localQ.first;
+                } else {
+                    this.last.next = localQ.first;
+                }
+                this.last = localQ.last;
+                this.length += localQ.length;
+                localQ.createNewRep();
+            }
+        } else {
+            super.append(q);
+        }
     }
 
 }
@@ -0,0 +1,399 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import components.queue.Queue;
+import components.queue.QueueSecondary;
+
+/**
+ * Thread-safe bounded {@code Queue} represented as a fixed-size circular
+ * buffer guarded by a lock, with implementations of primary methods.
+ * <p>
+ * The queue holds at most {@code capacity} entries, which gives producers
+ * backpressure: {@code enqueue} waits while the queue is full, and
+ * {@code dequeue} waits while it is empty instead of requiring it not to be,
+ * so a consumer thread can simply call it in a loop. {@code tryEnqueue} and
+ * {@code tryDequeue} never wait. Waiting is not interrupted, as kernel methods
+ * cannot report it. {@code clear}, {@code transferFrom} and
+ * {@code newInstance} must not run concurrently with other operations, and
+ * iterators see a copy of the entries made under the lock when they are
+ * created.
+ * <p>
+ * Only the kernel methods, {@code tryEnqueue} and {@code tryDequeue} are
+ * atomic. The other methods inherited from {@code QueueSecondary}, such as
+ * {@code append}, {@code flip} and {@code rotate}, are made of many kernel
+ * calls that each take the lock on their own, so operations of other threads
+ * can interleave with them. {@code append} requires the combined length to
+ * fit in the capacity, since otherwise it would wait forever for room.
+ *
+ * @param <T>
+ *            type of {@code Queue} entries
+ * @convention <pre>
+ * |$this.entries| > 0  and
+ * 0 <= $this.head < |$this.entries|  and
+ * 0 <= $this.length <= |$this.entries|  and
+ * [the $this.length positions of $this.entries from $this.head onwards,
+ *  wrapping around, are not null, and the others are null]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the $this.length entries of $this.entries from position
+ *         $this.head onwards, wrapping around from the last position to 0]
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Queue4<T> extends QueueSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Entries included in {@code this}, in the circular buffer.
+     */
+    private T[] entries;
+
+    /**
+     * Position of the front entry in {@code entries}.
+     */
+    private int head;
+
+    /**
+     * Number of entries in {@code this}.
+     */
+    private int length;
+
+    /**
+     * Lock guarding all the other fields.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when an entry is enqueued.
+     */
+    private final Condition notEmpty = this.lock.newCondition();
+
+    /**
+     * Signaled when an entry is dequeued.
+     */
+    private final Condition notFull = this.lock.newCondition();
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the maximum number of entries
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep(int capacity) {
+        this.entries = (T[]) new Object[capacity];
+        this.head = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Adds {@code x} at the end of the buffer.
+     *
+     * @param x
+     *            the entry to be added
+     * @aliases reference {@code x}
+     * @requires [the lock is held] and $this.length < |$this.entries|
+     * @ensures this = #this * <x>
+     */
+    private void insert(T x) {
+        int tail = this.head + this.length;
+        if (tail >= this.entries.length) {
+            tail -= this.entries.length;
+        }
+        this.entries[tail] = x;
+        this.length++;
+        this.notEmpty.signal();
+    }
+
+    /**
+     * Removes and returns the entry at the front of the buffer.
+     *
+     * @return the entry removed
+     * @requires [the lock is held] and $this.length > 0
+     * @ensures #this = <extract> * this
+     */
+    private T extract() {
+        T front = this.entries[this.head];
+        this.entries[this.head] = null;
+        this.head++;
+        if (this.head == this.entries.length) {
+            this.head = 0;
+        }
+        this.length--;
+        this.notFull.signal();
+        return front;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Queue4() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor from capacity.
+     *
+     * @param capacity
+     *            the maximum number of entries
+     */
+    public Queue4(int capacity) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+
+        this.createNewRep(capacity);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Queue<T> newInstance() {
+        try {
+            return this.getClass().getConstructor(int.class)
+                    .newInstance(this.entries.length);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.lock.lock();
+        try {
+            this.createNewRep(this.entries.length);
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final void transferFrom(Queue<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Queue4<?> : ""
+                + "Violation of: source is of dynamic type Queue4<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Queue4<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Queue4<T> localSource = (Queue4<T>) source;
+        this.entries = localSource.entries;
+        this.head = localSource.head;
+        this.length = localSource.length;
+        localSource.createNewRep(this.entries.length);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void enqueue(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        this.lock.lock();
+        try {
+            while (this.length == this.entries.length) {
+                this.notFull.awaitUninterruptibly();
+            }
+            this.insert(x);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final T dequeue() {
+        this.lock.lock();
+        try {
+            while (this.length == 0) {
+                this.notEmpty.awaitUninterruptibly();
+            }
+            return this.extract();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final int length() {
+        this.lock.lock();
+        try {
+            return this.length;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Queue4Iterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return the capacity
+     */
+    public final int capacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Entries are moved one at a time, so the append is not atomic.
+     *
+     * @requires |this| + |q| <= [the capacity]
+     */
+    @Override
+    public final void append(Queue<T> q) {
+        assert q != null : "Violation of: q is not null";
+        assert q != this : "Violation of: q is not this";
+        assert this.length() + q.length() <= this.capacity()
+                : "Violation of: |this| + |q| <= [the capacity]";
+
+        super.append(q);
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this} if there is room, without
+     * waiting.
+     *
+     * @param x
+     *            the entry to be added
+     * @return whether {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures <pre>
+     * tryEnqueue = (|#this| < [the capacity])  and
+     * if tryEnqueue then this = #this * <x> else this = #this
+     * </pre>
+     */
+    public final boolean tryEnqueue(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        this.lock.lock();
+        try {
+            boolean room = this.length < this.entries.length;
+            if (room) {
+                this.insert(x);
+            }
+            return room;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this} if there is
+     * one, without waiting.
+     *
+     * @return the entry removed, or null if {@code this} was empty
+     * @updates this
+     * @ensures <pre>
+     * if #this = <> then (tryDequeue = null  and  this = #this)
+     * else #this = <tryDequeue> * this
+     * </pre>
+     */
+    public final T tryDequeue() {
+        this.lock.lock();
+        try {
+            T front = null;
+            if (this.length > 0) {
+                front = this.extract();
+            }
+            return front;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Queue4}.
+     */
+    private final class Queue4Iterator implements Iterator<T> {
+
+        /**
+         * Copy of the entries when the iterator was created.
+         */
+        private final Object[] snapshot;
+
+        /**
+         * Number of entries seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * No-argument constructor.
+         */
+        Queue4Iterator() {
+            Queue4<T> queue = Queue4.this;
+            queue.lock.lock();
+            try {
+                this.snapshot = new Object[queue.length];
+                int firstRun = Math.min(queue.length, queue.entries.length - queue.head);
+                System.arraycopy(queue.entries, queue.head, this.snapshot, 0, firstRun);
+                System.arraycopy(queue.entries, 0, this.snapshot, firstRun,
+                        queue.length - firstRun);
+            } finally {
+                queue.lock.unlock();
+            }
+            this.numberSeen = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < this.snapshot.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = (T) this.snapshot[this.numberSeen];
+            this.numberSeen++;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
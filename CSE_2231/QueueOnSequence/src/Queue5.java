@@ -0,0 +1,398 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import components.queue.Queue;
+import components.queue.QueueSecondary;
+
+/**
+ * Thread-safe bounded {@code Queue} represented as a lock-free circular buffer
+ * for any number of producer and consumer threads (Vyukov's bounded MPMC
+ * queue), with implementations of primary methods.
+ * <p>
+ * Each slot of the buffer carries a sequence number telling whether it is
+ * ready to be written for a given lap around the buffer or ready to be read.
+ * A producer claims the next slot to write by advancing {@code tail} with a
+ * compare-and-set, and a consumer the next slot to read by advancing
+ * {@code head}, so threads never wait for a lock, and producers and consumers
+ * only contend among themselves. {@code offer} and {@code poll} fail instead
+ * of waiting when the queue is full or empty; {@code enqueue} and
+ * {@code dequeue} spin until they succeed, which gives producers backpressure
+ * and lets a consumer simply call {@code dequeue} in a loop. {@code length} is
+ * exact only while no update is in progress. {@code clear},
+ * {@code transferFrom} and {@code newInstance} must not run concurrently with
+ * other operations, and iterators see a copy of the entries present when
+ * they are created, minus any dequeued while the copy is made.
+ * <p>
+ * Only the kernel methods, {@code offer} and {@code poll} are atomic. The
+ * other methods inherited from {@code QueueSecondary}, such as
+ * {@code append}, {@code flip} and {@code rotate}, are made of many kernel
+ * calls, so operations of other threads can interleave with them.
+ * {@code append} requires the combined length to fit in the capacity, since
+ * otherwise it would spin forever waiting for room.
+ *
+ * @param <T>
+ *            type of {@code Queue} entries
+ * @convention <pre>
+ * [|$this.entries| = |$this.sequences| is a power of 2]  and
+ * $this.mask = |$this.entries| - 1  and
+ * $this.head <= $this.tail <= $this.head + |$this.entries|  and
+ * for all p: integer where ($this.head <= p < $this.tail)
+ *   ($this.sequences[p mod |$this.entries|] = p + 1  and
+ *    $this.entries[p mod |$this.entries|] /= null)  and
+ * for all p: integer
+ *     where ($this.tail <= p < $this.head + |$this.entries|)
+ *   ($this.sequences[p mod |$this.entries|] = p  and
+ *    $this.entries[p mod |$this.entries|] = null)
+ * </pre>
+ * once no update is in progress
+ * @correspondence <pre>
+ * this = [the entries of $this.entries at positions p mod |$this.entries|
+ *         for p from $this.head to $this.tail - 1]
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Queue5<T> extends QueueSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default capacity; must be a power of 2.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Entries included in {@code this}, in the circular buffer.
+     */
+    private AtomicReferenceArray<T> entries;
+
+    /**
+     * Sequence number of each slot of {@code entries}.
+     */
+    private AtomicLongArray sequences;
+
+    /**
+     * {@code |entries| - 1}, to reduce positions to slots.
+     */
+    private int mask;
+
+    /**
+     * Position of the next entry to be dequeued.
+     */
+    private AtomicLong head;
+
+    /**
+     * Position of the next entry to be enqueued.
+     */
+    private AtomicLong tail;
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the maximum number of entries
+     * @requires [capacity is a power of 2]
+     */
+    private void createNewRep(int capacity) {
+        this.entries = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Queue5() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor from capacity.
+     *
+     * @param capacity
+     *            the maximum number of entries
+     */
+    public Queue5(int capacity) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+        assert Integer.bitCount(capacity) == 1
+                : "Violation of: capacity is a power of 2";
+
+        this.createNewRep(capacity);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Queue<T> newInstance() {
+        try {
+            return this.getClass().getConstructor(int.class)
+                    .newInstance(this.mask + 1);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.mask + 1);
+    }
+
+    @Override
+    public final void transferFrom(Queue<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Queue5<?> : ""
+                + "Violation of: source is of dynamic type Queue5<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Queue5<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Queue5<T> localSource = (Queue5<T>) source;
+        this.entries = localSource.entries;
+        this.sequences = localSource.sequences;
+        this.mask = localSource.mask;
+        this.head = localSource.head;
+        this.tail = localSource.tail;
+        localSource.createNewRep(this.mask + 1);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void enqueue(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        while (!this.offer(x)) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public final T dequeue() {
+        T front = this.poll();
+        while (front == null) {
+            Thread.yield();
+            front = this.poll();
+        }
+        return front;
+    }
+
+    @Override
+    public final int length() {
+        /*
+         * Read head first: tail only grows, so the difference cannot be
+         * negative, but it can exceed the capacity if entries are enqueued and
+         * dequeued in between
+         */
+        long front = this.head.get();
+        long length = this.tail.get() - front;
+        return (int) Math.min(length, this.mask + 1);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Queue5Iterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return the capacity
+     */
+    public final int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Entries are moved one at a time, so the append is not atomic.
+     *
+     * @requires |this| + |q| <= [the capacity]
+     */
+    @Override
+    public final void append(Queue<T> q) {
+        assert q != null : "Violation of: q is not null";
+        assert q != this : "Violation of: q is not this";
+        assert this.length() + q.length() <= this.capacity()
+                : "Violation of: |this| + |q| <= [the capacity]";
+
+        super.append(q);
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this} if there is room, without
+     * waiting.
+     *
+     * @param x
+     *            the entry to be added
+     * @return whether {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures <pre>
+     * offer = (|#this| < [the capacity])  and
+     * if offer then this = #this * <x> else this = #this
+     * </pre>
+     */
+    public final boolean offer(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean claimed = false;
+        boolean full = false;
+        long position = this.tail.get();
+        while (!claimed && !full) {
+            long difference = this.sequences.get((int) position & this.mask) - position;
+            if (difference == 0) {
+                // The slot is free for this lap: try to claim it
+                claimed = this.tail.compareAndSet(position, position + 1);
+                if (!claimed) {
+                    position = this.tail.get();
+                }
+            } else if (difference < 0) {
+                // The slot still holds the entry from the previous lap
+                full = true;
+            } else {
+                // Another producer claimed the slot first
+                position = this.tail.get();
+            }
+        }
+        if (claimed) {
+            int slot = (int) position & this.mask;
+            this.entries.set(slot, x);
+            this.sequences.set(slot, position + 1);
+        }
+        return claimed;
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this} if there is
+     * one, without waiting.
+     *
+     * @return the entry removed, or null if {@code this} was empty
+     * @updates this
+     * @ensures <pre>
+     * if #this = <> then (poll = null  and  this = #this)
+     * else #this = <poll> * this
+     * </pre>
+     */
+    public final T poll() {
+        boolean claimed = false;
+        boolean empty = false;
+        long position = this.head.get();
+        while (!claimed && !empty) {
+            long difference = this.sequences.get((int) position & this.mask)
+                    - (position + 1);
+            if (difference == 0) {
+                // The slot has been written for this lap: try to claim it
+                claimed = this.head.compareAndSet(position, position + 1);
+                if (!claimed) {
+                    position = this.head.get();
+                }
+            } else if (difference < 0) {
+                // Nothing has been written to the slot yet
+                empty = true;
+            } else {
+                // Another consumer claimed the slot first
+                position = this.head.get();
+            }
+        }
+        T front = null;
+        if (claimed) {
+            int slot = (int) position & this.mask;
+            front = this.entries.get(slot);
+            this.entries.set(slot, null);
+            // Free the slot for the producer of the next lap
+            this.sequences.set(slot, position + this.mask + 1);
+        }
+        return front;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Queue5}.
+     */
+    private final class Queue5Iterator implements Iterator<T> {
+
+        /**
+         * Entries found when the iterator was created.
+         */
+        private final List<T> seen;
+
+        /**
+         * Number of entries seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * No-argument constructor.
+         */
+        Queue5Iterator() {
+            Queue5<T> queue = Queue5.this;
+            this.seen = new ArrayList<>();
+            long end = queue.tail.get();
+            for (long p = queue.head.get(); p < end; p++) {
+                T x = queue.entries.get((int) p & queue.mask);
+                // Skip entries dequeued since head was read
+                if (x != null) {
+                    this.seen.add(x);
+                }
+            }
+            this.numberSeen = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < this.seen.size();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = this.seen.get(this.numberSeen);
+            this.numberSeen++;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+
+/**
+ * JUnit test fixture for thread-safe bounded {@code Queue} implementations,
+ * adding tests of their capacity, of their non-waiting operations and of
+ * concurrent use to those of {@code QueueTest}.
+ */
+public abstract class BoundedQueueTest extends QueueTest {
+
+    /**
+     * Capacity of the queues used by these tests, small enough that producers
+     * have to wait for consumers; a power of 2 for the sake of
+     * {@code Queue5}.
+     */
+    private static final int TEST_CAPACITY = 64;
+
+    /**
+     * Number of producer threads, and of consumer threads, in the concurrent
+     * test.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Number of entries each producer enqueues in the concurrent test.
+     */
+    private static final int ENTRIES_PER_THREAD = 20000;
+
+    /**
+     * Time allowed to the concurrent test, in milliseconds, after which a
+     * thread that died and left the others waiting fails it.
+     */
+    private static final long TIMEOUT = 60000;
+
+    /**
+     * Invokes the constructor from capacity of the implementation under test
+     * and returns the result.
+     *
+     * @param <E>
+     *            type of the entries
+     * @param capacity
+     *            the maximum number of entries
+     * @return the new queue
+     * @ensures constructorBounded = <>
+     */
+    protected abstract <E> Queue<E> constructorBounded(int capacity);
+
+    /**
+     * Returns the capacity of {@code q}.
+     *
+     * @param q
+     *            a queue of the implementation under test
+     * @return the capacity
+     */
+    protected abstract int capacity(Queue<Integer> q);
+
+    /**
+     * Adds {@code x} at the end of {@code q} if there is room, without
+     * waiting.
+     *
+     * @param q
+     *            a queue of the implementation under test
+     * @param x
+     *            the entry to be added
+     * @return whether {@code x} was added
+     */
+    protected abstract boolean tryEnqueue(Queue<Integer> q, Integer x);
+
+    /**
+     * Removes and returns the entry at the front of {@code q} if there is one,
+     * without waiting.
+     *
+     * @param q
+     *            a queue of the implementation under test
+     * @return the entry removed, or null if {@code q} was empty
+     */
+    protected abstract Integer tryDequeue(Queue<Integer> q);
+
+    /**
+     * Tests the capacity, and the non-waiting operations on an empty, a full
+     * and a partly full queue.
+     */
+    @Test
+    public final void testTryOnEmptyAndFull() {
+        Queue<Integer> q = this.constructorBounded(TEST_CAPACITY);
+        assertEquals(TEST_CAPACITY, this.capacity(q));
+        assertNull(this.tryDequeue(q));
+        for (int i = 0; i < TEST_CAPACITY; i++) {
+            assertTrue(this.tryEnqueue(q, i));
+        }
+        assertFalse(this.tryEnqueue(q, TEST_CAPACITY));
+        assertEquals(TEST_CAPACITY, q.length());
+        assertEquals(Integer.valueOf(0), this.tryDequeue(q));
+        assertTrue(this.tryEnqueue(q, TEST_CAPACITY));
+        for (int i = 1; i <= TEST_CAPACITY; i++) {
+            assertEquals(Integer.valueOf(i), this.tryDequeue(q));
+        }
+        assertNull(this.tryDequeue(q));
+        assertEquals(0, q.length());
+        assertEquals(TEST_CAPACITY, this.capacity(q.newInstance()));
+    }
+
+    /**
+     * Tests several producers and consumers sharing a small queue: every entry
+     * must be dequeued exactly once, and the entries of each producer in the
+     * order they were enqueued.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test(timeout = TIMEOUT)
+    public final void testProducersAndConsumers() throws InterruptedException {
+        Queue<Integer> q = this.constructorBounded(TEST_CAPACITY);
+        AtomicLong sum = new AtomicLong();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[2 * THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int producer = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                    q.enqueue(producer * ENTRIES_PER_THREAD + i);
+                }
+            });
+            threads[THREADS + t] = new Thread(() -> {
+                int[] last = new int[THREADS];
+                Arrays.fill(last, -1);
+                for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                    int x = q.dequeue();
+                    int from = x / ENTRIES_PER_THREAD;
+                    if (last[from] > x) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    last[from] = x;
+                    sum.addAndGet(x);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> failure.compareAndSet(null, e));
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("A worker thread failed", failure.get());
+        }
+        long n = (long) THREADS * ENTRIES_PER_THREAD;
+        assertEquals(n * (n - 1) / 2, sum.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, q.length());
+    }
+
+}
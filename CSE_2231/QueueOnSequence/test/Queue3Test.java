@@ -1,3 +1,11 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
 import components.queue.Queue;
 import components.queue.Queue1L;
 
@@ -16,4 +24,160 @@ public class Queue3Test extends QueueTest {
         return new Queue1L<String>();
     }
 
+    /**
+     * Returns a reference queue holding {@code args}.
+     *
+     * @param args
+     *            the entries for the queue
+     * @return the reference queue
+     */
+    private Queue<String> reference(String... args) {
+        Queue<String> q = this.constructorRef();
+        for (String x : args) {
+            q.enqueue(x);
+        }
+        return q;
+    }
+
+    /**
+     * Returns a {@code Queue3} with chunks of 2 entries holding "c", "d", "e"
+     * after dequeuing "a" and "b", so its entries span two chunks and the
+     * first one has been emptied and reused.
+     *
+     * @return the queue
+     */
+    private static Queue3<String> spanning() {
+        Queue3<String> q = new Queue3<String>(2, false);
+        q.enqueue("a");
+        q.enqueue("b");
+        q.enqueue("c");
+        q.dequeue();
+        q.dequeue();
+        q.enqueue("d");
+        q.enqueue("e");
+        return q;
+    }
+
+    /**
+     * Tests enqueueAll from a collection, filling the last chunk and adding a
+     * larger one, and from an iterable that is not a collection.
+     */
+    @Test
+    public void testEnqueueAll() {
+        Queue3<String> q = spanning();
+        q.enqueueAll(Arrays.asList("f"));
+        q.enqueueAll(Arrays.asList("g", "h", "i", "j"));
+        Queue<String> other = this.reference("k", "l");
+        q.enqueueAll(other);
+        Queue<String> qExpected = this.reference("c", "d", "e", "f", "g", "h",
+                "i", "j", "k", "l");
+        assertEquals(qExpected, q);
+        assertEquals(2, other.length());
+    }
+
+    /**
+     * Tests enqueueAll of a queue into itself, which adds each entry once.
+     */
+    @Test
+    public void testEnqueueAllItself() {
+        Queue3<String> q = spanning();
+        q.enqueueAll(q);
+        assertEquals(this.reference("c", "d", "e", "c", "d", "e"), q);
+    }
+
+    /**
+     * Tests drainTo across chunk boundaries, with a maximum below and above
+     * the length.
+     */
+    @Test
+    public void testDrainTo() {
+        Queue3<String> q = spanning();
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, q.drainTo(drained, 2));
+        assertEquals(Arrays.asList("c", "d"), drained);
+        q.enqueue("f");
+        assertEquals(2, q.drainTo(drained, 10));
+        assertEquals(Arrays.asList("c", "d", "e", "f"), drained);
+        assertEquals(0, q.length());
+        assertEquals(0, q.drainTo(drained, 10));
+        q.enqueue("g");
+        assertEquals(this.reference("g"), q);
+    }
+
+    /**
+     * Tests that draining a shrinking queue in one batch lets go of its
+     * chunks and leaves it usable.
+     */
+    @Test
+    public void testDrainToShrinks() {
+        Queue3<String> q = new Queue3<String>(2, true);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add("e" + i);
+        }
+        q.enqueueAll(items);
+        List<String> drained = new ArrayList<>();
+        assertEquals(999, q.drainTo(drained, 999));
+        assertEquals(items.subList(0, 999), drained);
+        q.enqueue("x");
+        assertEquals(this.reference("e999", "x"), q);
+    }
+
+    /**
+     * Tests append of a {@code Queue3}, spliced in, and of another kind of
+     * queue, into both empty and non-empty queues, and that the spliced queue
+     * is still usable at both ends.
+     */
+    @Test
+    public void testAppend() {
+        Queue3<String> q = new Queue3<String>(2, false);
+        Queue3<String> other = spanning();
+        q.append(other);
+        assertEquals(this.reference("c", "d", "e"), q);
+        assertEquals(0, other.length());
+        other.enqueue("f");
+        other.enqueue("g");
+        q.append(other);
+        q.append(this.reference("h"));
+        q.append(new Queue3<String>());
+        q.enqueue("i");
+        assertEquals("c", q.dequeue());
+        assertEquals(this.reference("d", "e", "f", "g", "h", "i"), q);
+        assertEquals(this.reference(), other);
+        other.enqueue("j");
+        assertEquals(this.reference("j"), other);
+    }
+
+    /**
+     * Tests splitAt at every position of a queue spanning several chunks, and
+     * that both halves stay usable, including adding to the first half,
+     * whose last chunk shares its array with the second half.
+     */
+    @Test
+    public void testSplitAt() {
+        String[] entries = { "a", "b", "c", "d", "e", "f", "g" };
+        for (int pos = 0; pos < entries.length; pos++) {
+            Queue3<String> q = new Queue3<String>(3, false);
+            for (String x : entries) {
+                q.enqueue(x);
+            }
+            // Leave the first chunk partly emptied: q = <b, c, d, e, f, g>
+            q.dequeue();
+            Queue3<String> rest = q.splitAt(pos);
+            int kept = 1 + pos;
+            assertEquals(this.reference(Arrays.copyOfRange(entries, 1, kept)), q);
+            assertEquals(this.reference(
+                    Arrays.copyOfRange(entries, kept, entries.length)), rest);
+            q.enqueue("x");
+            rest.enqueue("y");
+            q.append(rest);
+            List<String> expected = new ArrayList<>();
+            expected.addAll(Arrays.asList(entries).subList(1, kept));
+            expected.add("x");
+            expected.addAll(Arrays.asList(entries).subList(kept, entries.length));
+            expected.add("y");
+            assertEquals(this.reference(expected.toArray(new String[0])), q);
+        }
+    }
+
 }
@@ -0,0 +1,64 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+
+/**
+ * Customized JUnit test fixture for {@code Queue3} with chunks of 1 entry that
+ * are let go on drain, so that every entry is in a chunk of its own while the
+ * tests run.
+ */
+public class Queue3TestShrink extends QueueTest {
+
+    /**
+     * Chunk capacity to be used in tests.
+     */
+    private static final int TEST_CAPACITY = 1;
+
+    /**
+     * Number of entries used by the growth test.
+     */
+    private static final int TEST_ENTRIES = 2000;
+
+    @Override
+    protected final Queue<String> constructorTest() {
+        return new Queue3<String>(TEST_CAPACITY, true);
+    }
+
+    @Override
+    protected final Queue<String> constructorRef() {
+        return new Queue1L<String>();
+    }
+
+    /**
+     * Tests a queue that repeatedly grows and drains, against
+     * {@code Queue1L}. With chunks of 1 entry every enqueue links a new last
+     * chunk and every dequeue unlinks the first one, and each drain leaves a
+     * single chunk that is both first and last before the next round grows
+     * the chain again.
+     */
+    @Test
+    public void testGrowAndDrain() {
+        Queue<String> q = this.constructorTest();
+        Queue<String> qExpected = this.constructorRef();
+        int next = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < TEST_ENTRIES; i++) {
+                q.enqueue("e" + next);
+                qExpected.enqueue("e" + next);
+                next++;
+                if (i % 3 == 0) {
+                    assertEquals(qExpected.dequeue(), q.dequeue());
+                }
+            }
+            assertEquals(qExpected, q);
+            while (q.length() > 1) {
+                assertEquals(qExpected.dequeue(), q.dequeue());
+            }
+            assertEquals(qExpected, q);
+        }
+    }
+
+}
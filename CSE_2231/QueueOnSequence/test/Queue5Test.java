@@ -0,0 +1,39 @@
+import components.queue.Queue;
+import components.queue.Queue1L;
+
+/**
+ * Customized JUnit test fixture for {@code Queue5}.
+ */
+public class Queue5Test extends BoundedQueueTest {
+
+    @Override
+    protected final Queue<String> constructorTest() {
+        return new Queue5<String>();
+    }
+
+    @Override
+    protected final Queue<String> constructorRef() {
+        return new Queue1L<String>();
+    }
+
+    @Override
+    protected final <E> Queue<E> constructorBounded(int capacity) {
+        return new Queue5<E>(capacity);
+    }
+
+    @Override
+    protected final int capacity(Queue<Integer> q) {
+        return ((Queue5<Integer>) q).capacity();
+    }
+
+    @Override
+    protected final boolean tryEnqueue(Queue<Integer> q, Integer x) {
+        return ((Queue5<Integer>) q).offer(x);
+    }
+
+    @Override
+    protected final Integer tryDequeue(Queue<Integer> q) {
+        return ((Queue5<Integer>) q).poll();
+    }
+
+}
@@ -0,0 +1,222 @@
+import java.util.Random;
+
+import components.set.Set;
+
+/**
+ * Measures the throughput of {@code Set4} and of a {@code Set3a} guarded by a
+ * single lock when several threads use them at once. Each thread runs a mix of
+ * {@value #CONTAINS_PERCENT}% lookups and equal shares of insertions and
+ * removals of random elements, and the total number of operations per
+ * millisecond is printed for each number of threads.
+ * <p>
+ * Usage: {@code SetContentionBenchmark [operationsPerThread]}; the default is
+ * {@value #DEFAULT_OPERATIONS}.
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ */
+public final class SetContentionBenchmark {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private SetContentionBenchmark() {
+    }
+
+    /**
+     * Default number of operations run by each thread.
+     */
+    private static final int DEFAULT_OPERATIONS = 200000;
+
+    /**
+     * Numbers of threads to measure.
+     */
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16 };
+
+    /**
+     * Range of the random elements.
+     */
+    private static final int RANGE = 100000;
+
+    /**
+     * Percentage of the operations that are lookups.
+     */
+    private static final int CONTAINS_PERCENT = 80;
+
+    /**
+     * Number of untimed runs before each measurement.
+     */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /**
+     * Operations on the set measured, whatever it is and however it is
+     * guarded.
+     */
+    private interface SharedSet {
+
+        /**
+         * Reports whether {@code x} is in the set.
+         *
+         * @param x
+         *            the element
+         * @return whether it is in the set
+         */
+        boolean contains(String x);
+
+        /**
+         * Adds {@code x} to the set if it is not there.
+         *
+         * @param x
+         *            the element
+         */
+        void addIfAbsent(String x);
+
+        /**
+         * Removes {@code x} from the set if it is there.
+         *
+         * @param x
+         *            the element
+         */
+        void removeIfPresent(String x);
+
+    }
+
+    /**
+     * {@code SharedSet} on a {@code Set4}, which needs no locking.
+     *
+     * @return the shared set
+     */
+    private static SharedSet skipList() {
+        final Set4<String> s = new Set4<>();
+        return new SharedSet() {
+
+            @Override
+            public boolean contains(String x) {
+                return s.contains(x);
+            }
+
+            @Override
+            public void addIfAbsent(String x) {
+                s.addIfAbsent(x);
+            }
+
+            @Override
+            public void removeIfPresent(String x) {
+                s.removeIfPresent(x);
+            }
+
+        };
+    }
+
+    /**
+     * {@code SharedSet} on a {@code Set3a}, every operation holding the set's
+     * lock.
+     *
+     * @return the shared set
+     */
+    private static SharedSet synchronizedTree() {
+        final Set<String> s = new Set3a<>();
+        return new SharedSet() {
+
+            @Override
+            public boolean contains(String x) {
+                synchronized (s) {
+                    return s.contains(x);
+                }
+            }
+
+            @Override
+            public void addIfAbsent(String x) {
+                synchronized (s) {
+                    if (!s.contains(x)) {
+                        s.add(x);
+                    }
+                }
+            }
+
+            @Override
+            public void removeIfPresent(String x) {
+                synchronized (s) {
+                    if (s.contains(x)) {
+                        s.remove(x);
+                    }
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Runs {@code operations} random operations on {@code set} on each of
+     * {@code threadCount} threads and returns the elapsed time in nanoseconds.
+     *
+     * @param set
+     *            the set
+     * @param threadCount
+     *            the number of threads
+     * @param operations
+     *            the number of operations per thread
+     * @return the elapsed time
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    private static long run(SharedSet set, int threadCount, int operations)
+            throws InterruptedException {
+        for (int i = 0; i < RANGE; i += 2) {
+            set.addIfAbsent(Integer.toString(i));
+        }
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < operations; i++) {
+                    String x = Integer.toString(random.nextInt(RANGE));
+                    int kind = random.nextInt(100);
+                    if (kind < CONTAINS_PERCENT) {
+                        set.contains(x);
+                    } else if (kind % 2 == 0) {
+                        set.addIfAbsent(x);
+                    } else {
+                        set.removeIfPresent(x);
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: number of operations per thread
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int operations = DEFAULT_OPERATIONS;
+        if (args.length > 0) {
+            operations = Integer.parseInt(args[0]);
+        }
+        System.out.printf("%8s %20s %20s%n", "threads", "Set4 (ops/ms)",
+                "sync Set3a (ops/ms)");
+        for (int threadCount : THREAD_COUNTS) {
+            for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+                run(skipList(), threadCount, operations);
+                run(synchronizedTree(), threadCount, operations);
+            }
+            long total = (long) threadCount * operations;
+            long skipListTime = run(skipList(), threadCount, operations);
+            long treeTime = run(synchronizedTree(), threadCount, operations);
+            System.out.printf("%8d %20.0f %20.0f%n", threadCount,
+                    total * 1e6 / skipListTime, total * 1e6 / treeTime);
+        }
+    }
+
+}
@@ -1,13 +1,43 @@
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-import components.binarytree.BinaryTree;
-import components.binarytree.BinaryTree1;
+import components.queue.Queue;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of linked nodes with
+ * implementations of primary methods.
+ * <p>
+ * The tree is kept weight-balanced: after every insertion or removal, each
+ * node on the path to it is rotated if one of its subtrees has grown more
+ * than {@value #DELTA} times heavier than the other, as in Adams' balanced
+ * trees. The height of the tree is then O(log |this|) whatever the order in
+ * which elements are added, e.g. already sorted, so {@code add},
+ * {@code remove} and {@code contains} take O(log |this|) time. They are
+ * iterative: insertion and removal record the path down from the root in an
+ * array and rebalance it on the way back up, so no operation depends on the
+ * size of the call stack.
+ * <p>
+ * Every node records the size of the subtree rooted at it, which is all the
+ * balancing needs. {@code contains} only follows links down from the root,
+ * so it neither changes nor allocates anything.
+ * <p>
+ * Besides the {@code Set} operations, the order of the elements can be
+ * queried with {@code floor}, {@code ceiling}, {@code subSet}, and, thanks
+ * to the subtree sizes, {@code select} and {@code rank}; they take
+ * O(log |this|) time plus, for {@code subSet}, O(1) per element visited.
+ * {@code union}, {@code intersection} and {@code difference} combine two
+ * {@code Set3a}s by splitting one tree at the root of the other and joining
+ * the results, which only touches O(m log(n/m + 1)) nodes and lets large
+ * halves be combined in parallel on the common {@code ForkJoinPool}.
+ * {@code fromSorted} builds a perfectly balanced set from elements already
+ * in increasing order in O(n) time.
+ * <p>
+ * The iterator visits the elements in increasing order, walking the tree
+ * with a stack of the O(log |this|) nodes above the next element.
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -18,9 +48,26 @@ import components.set.SetSecondary;
  *  [tree satisfies the binary search tree properties as described in the
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
+ *
+ * IS_WEIGHT_BALANCED(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree (l, x, r) of tree,
+ *   |l| + 1 <= DELTA * (|r| + 1)  and  |r| + 1 <= DELTA * (|l| + 1)]
+ *
+ * TREE(
+ *   n: Node
+ *  ): binary tree of T satisfies
+ *  if n = null then TREE(n) = empty_tree
+ *  else TREE(n) = compose(n.label, TREE(n.left), TREE(n.right))
+ * </pre>
+ * @convention <pre>
+ * IS_BST(TREE($this.root))  and  IS_WEIGHT_BALANCED(TREE($this.root))  and
+ * [the nodes reachable from $this.root form a tree]  and
+ * [for every node n reachable from $this.root, n.label /= null  and
+ *  n.size = |TREE(n)|]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @correspondence this = labels(TREE($this.root))
  *
  * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
  *
@@ -32,171 +79,891 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
 
     /**
-     * Elements included in {@code this}.
+     * Largest ratio allowed between the weights (size + 1) of the two subtrees
+     * of a node.
+     */
+    private static final int DELTA = 3;
+
+    /**
+     * When rebalancing a node, the ratio between the weights of the inner and
+     * outer subtrees of its heavier child above which a double rotation is
+     * used instead of a single one.
+     */
+    private static final int RATIO = 2;
+
+    /**
+     * Bound on the number of nodes on a path from the root of a
+     * weight-balanced tree: each step down at least divides the weight by
+     * (DELTA + 1) / DELTA, so a tree of fewer than 2^31 nodes is less than
+     * log base 4/3 of 2^31, i.e. 75, nodes high.
+     */
+    private static final int MAX_HEIGHT = 80;
+
+    /**
+     * Combined size of two trees from which {@code union},
+     * {@code intersection} and {@code difference} work on their two halves in
+     * parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Node class for binary search tree nodes.
+     */
+    private final class Node {
+
+        /**
+         * Element in node.
+         */
+        private T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private Node right;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private int size;
+
+        /**
+         * Constructor of a leaf.
+         *
+         * @param label
+         *            the element in the node
+         */
+        Node(T label) {
+            this.label = label;
+            this.left = null;
+            this.right = null;
+            this.size = 1;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if it is empty.
+     */
+    private Node root;
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, possibly null
+     * @return |TREE(n)|
      */
-    private BinaryTree<T> tree;
+    private int sizeOf(Node n) {
+        int size = 0;
+        if (n != null) {
+            size = n.size;
+        }
+        return size;
+    }
 
     /**
-     * Returns whether {@code x} is in {@code t}.
+     * Recomputes the size of {@code n} from the sizes of its children.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
+     * @param n
+     *            the node
+     * @updates n.size
+     * @ensures n.size = 1 + |TREE(n.left)| + |TREE(n.right)|
+     */
+    private void updateSize(Node n) {
+        n.size = 1 + this.sizeOf(n.left) + this.sizeOf(n.right);
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} to the left: its right child
+     * becomes the root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @requires n /= null and n.right /= null
+     * @ensures <pre>
+     * [TREE(n) was (a, x, (b, y, c))]  implies
+     *  [TREE(rotateLeft) = ((a, x, b), y, c)]
+     * </pre>
+     */
+    private Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        this.updateSize(n);
+        r.left = n;
+        this.updateSize(r);
+        return r;
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} to the right: its left child
+     * becomes the root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @requires n /= null and n.left /= null
+     * @ensures <pre>
+     * [TREE(n) was ((a, x, b), y, c)]  implies
+     *  [TREE(rotateRight) = (a, x, (b, y, c))]
+     * </pre>
+     */
+    private Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        this.updateSize(n);
+        l.right = n;
+        this.updateSize(l);
+        return l;
+    }
+
+    /**
+     * Restores the balance of {@code n}, whose subtrees are weight-balanced and
+     * were so together before one element was inserted into or removed from
+     * one of them, and updates its size.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @requires <pre>
+     * n /= null  and  [both subtrees of n are weight-balanced]  and
+     * [the weights of the subtrees of n are off by at most one insertion or
+     *  removal from satisfying IS_WEIGHT_BALANCED]
+     * </pre>
+     * @ensures IS_WEIGHT_BALANCED(TREE(balance)) and
+     *          [in-order traversal of TREE(balance) = in-order traversal of
+     *          TREE(n)]
+     */
+    private Node balance(Node n) {
+        int leftWeight = this.sizeOf(n.left) + 1;
+        int rightWeight = this.sizeOf(n.right) + 1;
+        Node result = n;
+        if (rightWeight > DELTA * leftWeight) {
+            int innerWeight = this.sizeOf(n.right.left) + 1;
+            int outerWeight = this.sizeOf(n.right.right) + 1;
+            if (innerWeight >= RATIO * outerWeight) {
+                n.right = this.rotateRight(n.right);
+            }
+            result = this.rotateLeft(n);
+        } else if (leftWeight > DELTA * rightWeight) {
+            int innerWeight = this.sizeOf(n.left.right) + 1;
+            int outerWeight = this.sizeOf(n.left.left) + 1;
+            if (innerWeight >= RATIO * outerWeight) {
+                n.left = this.rotateLeft(n.left);
+            }
+            result = this.rotateRight(n);
+        } else {
+            this.updateSize(n);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether {@code x} is in the tree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the tree to be searched, possibly null
      * @param x
      *            the label to be searched for
-     * @return true if t contains x, false otherwise
-     * @requires IS_BST(t)
-     * @ensures isInTree = (x is in labels(t))
+     * @return true if the tree contains x, false otherwise
+     * @requires IS_BST(TREE(n))
+     * @ensures isInTree = (x is in labels(TREE(n)))
      */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t, T x) {
-        assert t != null : "Violation of: t is not null";
+    private boolean isInTree(Node n, T x) {
         assert x != null : "Violation of: x is not null";
 
-        // TODO - fill in body
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
+        Node current = n;
         boolean found = false;
-
-        if (t.size() > 0) {
-            T root = t.disassemble(left, right);
-            if (root.equals(x)) {
+        while (current != null && !found) {
+            int comparison = x.compareTo(current.label);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
                 found = true;
-            } else if (root.compareTo(x) < 0) {
-                found = isInTree(right, x);
-
-            } else if (root.compareTo(x) > 0) {
-                found = isInTree(left, x);
             }
-            t.assemble(root, left, right);
         }
-
-        // This line added just to make the component compilable.
         return found;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Returns an array long enough to hold any path from the root down.
+     *
+     * @return the new array
+     * @ensures |newPath| = MAX_HEIGHT
+     */
+    @SuppressWarnings("unchecked")
+    private Node[] newPath() {
+        /*
+         * Arrays of Node cannot be created directly, as Node depends on T
+         */
+        return (Node[]) new Set3a<?>.Node[MAX_HEIGHT];
+    }
+
+    /**
+     * Replaces child {@code oldChild} of {@code parent} by {@code newChild},
+     * or the root if {@code parent} is null.
+     *
+     * @param parent
+     *            the parent of {@code oldChild}, or null if it is the root
+     * @param oldChild
+     *            the child to be replaced
+     * @param newChild
+     *            the replacement, possibly null
+     * @updates $this.root, parent.left, parent.right
+     */
+    private void relink(Node parent, Node oldChild, Node newChild) {
+        if (parent == null) {
+            this.root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    /**
+     * Rebalances the nodes {@code path[0, depth)}, from the deepest up to the
+     * root, after an insertion or removal below {@code path[depth - 1]}.
+     *
+     * @param path
+     *            the path from the root down to where the tree changed
+     * @param depth
+     *            the number of nodes on the path
+     * @updates $this.root
+     * @requires <pre>
+     * path[0] = $this.root  and
+     * [path[i + 1] is a child of path[i] for 0 <= i < depth - 1]  and
+     * [the tree was weight-balanced before one element was inserted or
+     *  removed below path[depth - 1]]
+     * </pre>
+     * @ensures IS_WEIGHT_BALANCED(TREE($this.root)) and
+     *          [in-order traversal of TREE($this.root) is unchanged]
+     */
+    private void rebalancePath(Node[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node parent = null;
+            if (i > 0) {
+                parent = path[i - 1];
+            }
+            this.relink(parent, path[i], this.balance(path[i]));
+        }
+    }
+
+    /**
+     * Inserts {@code x} in the tree.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
      * @param x
      *            the label to be inserted
      * @aliases reference {@code x}
-     * @updates t
-     * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     * @updates $this.root
+     * @requires <pre>
+     * IS_BST(TREE($this.root)) and IS_WEIGHT_BALANCED(TREE($this.root)) and
+     *  x is not in labels(TREE($this.root))
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE($this.root)) and IS_WEIGHT_BALANCED(TREE($this.root)) and
+     *  labels(TREE($this.root)) = labels(TREE(#$this.root)) union {x}
+     * </pre>
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t, T x) {
-        assert t != null : "Violation of: t is not null";
+    private void insertInTree(T x) {
         assert x != null : "Violation of: x is not null";
-        assert !isInTree(t, x) : "Violation of: x is not in labels(t)";
-
-        // TODO - fill in body
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
 
-        if (t.size() == 0) {
-            t.assemble(x, left, right);
-        } else {
-            T root = t.disassemble(left, right);
-            if (x.compareTo(root) < 0) {
-                insertInTree(left, x);
+        Node[] path = this.newPath();
+        int depth = 0;
+        Node parent = null;
+        Node current = this.root;
+        while (current != null) {
+            path[depth] = current;
+            depth++;
+            parent = current;
+            if (x.compareTo(current.label) < 0) {
+                current = current.left;
             } else {
-                insertInTree(right, x);
+                current = current.right;
             }
-            t.assemble(root, left, right);
         }
-
+        Node leaf = new Node(x);
+        if (parent == null) {
+            this.root = leaf;
+        } else if (x.compareTo(parent.label) < 0) {
+            parent.left = leaf;
+        } else {
+            parent.right = leaf;
+        }
+        this.rebalancePath(path, depth);
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Unlinks node {@code path[depth - 1]}, which has at most one child,
+     * replacing it by that child, and rebalances the nodes above it.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
+     * @param path
+     *            the path from the root down to the node to be unlinked
+     * @param depth
+     *            the number of nodes on the path
+     * @updates $this.root
+     * @requires <pre>
+     * depth > 0  and  path[0] = $this.root  and
+     * [path[i + 1] is a child of path[i] for 0 <= i < depth - 1]  and
+     * (path[depth - 1].left = null  or  path[depth - 1].right = null)  and
+     * IS_WEIGHT_BALANCED(TREE($this.root))
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * IS_WEIGHT_BALANCED(TREE($this.root))  and
+     * [in-order traversal of TREE($this.root) = in-order traversal of
+     *  TREE(#$this.root) without the label of #path[depth - 1]]
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
+    private void unlink(Node[] path, int depth) {
+        Node target = path[depth - 1];
+        Node child = target.left;
+        if (child == null) {
+            child = target.right;
+        }
+        Node parent = null;
+        if (depth > 1) {
+            parent = path[depth - 2];
+        }
+        this.relink(parent, target, child);
+        this.rebalancePath(path, depth - 1);
+    }
 
-        // TODO - fill in body
-        T smallest;
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        T root = t.disassemble(left, right);
+    /**
+     * Removes and returns the smallest (left-most) label in the tree.
+     *
+     * @return the smallest label
+     * @updates $this.root
+     * @requires <pre>
+     * $this.root /= null  and  IS_BST(TREE($this.root))  and
+     *  IS_WEIGHT_BALANCED(TREE($this.root))
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE($this.root))  and  IS_WEIGHT_BALANCED(TREE($this.root))  and
+     *  removeSmallest = [the smallest label in TREE(#$this.root)]  and
+     *  labels(TREE($this.root)) = labels(TREE(#$this.root)) \ {removeSmallest}
+     * </pre>
+     */
+    private T removeSmallest() {
+        assert this.root != null : "Violation of: |TREE($this.root)| > 0";
 
-        if (left.size() > 0) {
-            smallest = removeSmallest(left);
-            t.assemble(root, left, right);
-        } else {
-            smallest = root;
-            t.transferFrom(right);
+        Node[] path = this.newPath();
+        int depth = 0;
+        Node current = this.root;
+        while (current != null) {
+            path[depth] = current;
+            depth++;
+            current = current.left;
         }
-
+        T smallest = path[depth - 1].label;
+        this.unlink(path, depth);
         return smallest;
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Finds label {@code x} in the tree, removes it, and returns it.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
      * @param x
      *            the label to be removed
      * @return the removed label
-     * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @updates $this.root
+     * @requires <pre>
+     * IS_BST(TREE($this.root)) and IS_WEIGHT_BALANCED(TREE($this.root)) and
+     *  x is in labels(TREE($this.root))
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * IS_BST(TREE($this.root))  and  IS_WEIGHT_BALANCED(TREE($this.root))  and
+     *  removeFromTree = x  and
+     *  labels(TREE($this.root)) = labels(TREE(#$this.root)) \ {x}
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t, T x) {
-        assert t != null : "Violation of: t is not null";
+    private T removeFromTree(T x) {
         assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
-
-        // TODO - fill in body
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        T root = t.disassemble(left, right);
-        T removed;
-
-        if (root.equals(x)) {
-            removed = root;
-            if (left.size() == 0) {
-                t.transferFrom(right);
-            } else if (right.size() == 0) {
-                t.transferFrom(left);
+
+        Node[] path = this.newPath();
+        int depth = 0;
+        Node current = this.root;
+        int comparison = x.compareTo(current.label);
+        path[depth] = current;
+        depth++;
+        while (comparison != 0) {
+            if (comparison < 0) {
+                current = current.left;
             } else {
-                T smallestInRight = removeSmallest(right);
-                t.assemble(smallestInRight, left, right);
+                current = current.right;
+            }
+            assert current != null : "Violation of: x is in labels(TREE($this.root))";
+            comparison = x.compareTo(current.label);
+            path[depth] = current;
+            depth++;
+        }
+        T removed = current.label;
+        if (current.left != null && current.right != null) {
+            /*
+             * Move the next larger label into this node and unlink the node it
+             * came from instead, which has no left child
+             */
+            Node successor = current.right;
+            while (successor != null) {
+                path[depth] = successor;
+                depth++;
+                successor = successor.left;
+            }
+            current.label = path[depth - 1].label;
+        }
+        this.unlink(path, depth);
+        return removed;
+    }
+
+    /**
+     * Result of splitting a tree at a label.
+     */
+    private final class Split {
+
+        /**
+         * Root of the tree of the labels smaller than the split label.
+         */
+        private Node smaller;
+
+        /**
+         * Whether the split label was in the tree.
+         */
+        private boolean found;
+
+        /**
+         * Root of the tree of the labels larger than the split label.
+         */
+        private Node larger;
+
+    }
+
+    /**
+     * The bulk operations that combine two trees.
+     */
+    private enum BulkOperation {
+        /**
+         * Labels in either tree.
+         */
+        UNION,
+        /**
+         * Labels in both trees.
+         */
+        INTERSECTION,
+        /**
+         * Labels in the first tree but not in the second.
+         */
+        DIFFERENCE
+    }
+
+    /**
+     * Returns the weight, size + 1, of the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, possibly null
+     * @return |TREE(n)| + 1
+     */
+    private int weightOf(Node n) {
+        return this.sizeOf(n) + 1;
+    }
+
+    /**
+     * Joins the trees rooted at {@code l} and {@code r} with node
+     * {@code middle} between them, descending along the side of the heavier
+     * tree until the weights match and rebalancing on the way back up.
+     *
+     * @param l
+     *            the root of the left tree, possibly null
+     * @param middle
+     *            the node to be placed between the trees
+     * @param r
+     *            the root of the right tree, possibly null
+     * @return the root of the joined tree
+     * @requires <pre>
+     * IS_BST(TREE(l))  and  IS_WEIGHT_BALANCED(TREE(l))  and
+     * IS_BST(TREE(r))  and  IS_WEIGHT_BALANCED(TREE(r))  and
+     * [every label of TREE(l) < middle.label < every label of TREE(r)]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE(join))  and  IS_WEIGHT_BALANCED(TREE(join))  and
+     * labels(TREE(join)) = labels(TREE(l)) union {middle.label} union
+     *                      labels(TREE(r))
+     * </pre>
+     */
+    private Node join(Node l, Node middle, Node r) {
+        Node result;
+        if (DELTA * this.weightOf(l) < this.weightOf(r)) {
+            r.left = this.join(l, middle, r.left);
+            result = this.balance(r);
+        } else if (DELTA * this.weightOf(r) < this.weightOf(l)) {
+            l.right = this.join(l.right, middle, r);
+            result = this.balance(l);
+        } else {
+            middle.left = l;
+            middle.right = r;
+            this.updateSize(middle);
+            result = middle;
+        }
+        return result;
+    }
+
+    /**
+     * Removes the smallest node from the tree rooted at {@code n}, keeping it
+     * balanced, and returns the root of what is left.
+     *
+     * @param n
+     *            the root of the tree
+     * @return the root of the tree without its smallest node
+     * @requires n /= null and IS_BST(TREE(n)) and IS_WEIGHT_BALANCED(TREE(n))
+     * @ensures <pre>
+     * IS_BST(TREE(withoutSmallest))  and
+     *  IS_WEIGHT_BALANCED(TREE(withoutSmallest))  and
+     *  labels(TREE(withoutSmallest)) =
+     *   labels(TREE(n)) \ {[the smallest label in TREE(n)]}
+     * </pre>
+     */
+    private Node withoutSmallest(Node n) {
+        Node result = n.right;
+        if (n.left != null) {
+            n.left = this.withoutSmallest(n.left);
+            result = this.balance(n);
+        }
+        return result;
+    }
+
+    /**
+     * Joins the trees rooted at {@code l} and {@code r}, using the smallest
+     * node of {@code r} to go between them.
+     *
+     * @param l
+     *            the root of the left tree, possibly null
+     * @param r
+     *            the root of the right tree, possibly null
+     * @return the root of the joined tree
+     * @requires <pre>
+     * IS_BST(TREE(l))  and  IS_WEIGHT_BALANCED(TREE(l))  and
+     * IS_BST(TREE(r))  and  IS_WEIGHT_BALANCED(TREE(r))  and
+     * [every label of TREE(l) < every label of TREE(r)]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE(joinTwo))  and  IS_WEIGHT_BALANCED(TREE(joinTwo))  and
+     * labels(TREE(joinTwo)) = labels(TREE(l)) union labels(TREE(r))
+     * </pre>
+     */
+    private Node joinTwo(Node l, Node r) {
+        Node result = l;
+        if (r != null) {
+            Node smallest = r;
+            while (smallest.left != null) {
+                smallest = smallest.left;
             }
+            result = this.join(l, smallest, this.withoutSmallest(r));
+        }
+        return result;
+    }
+
+    /**
+     * Splits the tree rooted at {@code n} into the labels smaller and larger
+     * than {@code x}, reusing its nodes; the node labeled {@code x}, if any, is
+     * dropped.
+     *
+     * @param n
+     *            the root of the tree, possibly null
+     * @param x
+     *            the label to split at
+     * @return the two trees and whether x was found
+     * @requires IS_BST(TREE(n)) and IS_WEIGHT_BALANCED(TREE(n))
+     * @ensures <pre>
+     * [both trees of split are BSTs and weight-balanced]  and
+     * labels(TREE(split.smaller)) = {y in labels(TREE(n)) where y < x}  and
+     * labels(TREE(split.larger)) = {y in labels(TREE(n)) where y > x}  and
+     * split.found = (x is in labels(TREE(n)))
+     * </pre>
+     */
+    private Split split(Node n, T x) {
+        Split result;
+        if (n == null) {
+            result = new Split();
         } else {
-            if (x.compareTo(root) < 0) {
-                removed = removeFromTree(left, x);
+            int comparison = x.compareTo(n.label);
+            if (comparison < 0) {
+                result = this.split(n.left, x);
+                result.larger = this.join(result.larger, n, n.right);
+            } else if (comparison > 0) {
+                result = this.split(n.right, x);
+                result.smaller = this.join(n.left, n, result.smaller);
             } else {
-                removed = removeFromTree(right, x);
+                result = new Split();
+                result.smaller = n.left;
+                result.found = true;
+                result.larger = n.right;
             }
-            t.assemble(root, left, right);
         }
+        return result;
+    }
 
-        return removed;
+    /**
+     * Combines the trees rooted at {@code t1} and {@code t2} by
+     * {@code operation}, reusing their nodes. Each tree is split at the root
+     * of the other and the two halves are combined recursively, in parallel
+     * when the trees together have at least {@value #PARALLEL_THRESHOLD}
+     * nodes.
+     *
+     * @param operation
+     *            the operation
+     * @param t1
+     *            the root of the first tree, possibly null
+     * @param t2
+     *            the root of the second tree, possibly null
+     * @return the root of the combined tree
+     * @requires <pre>
+     * [TREE(t1) and TREE(t2) are BSTs and weight-balanced and share no
+     *  nodes]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE(bulk))  and  IS_WEIGHT_BALANCED(TREE(bulk))  and
+     * labels(TREE(bulk)) = [labels(TREE(t1)) combined with labels(TREE(t2))
+     *                       by operation]
+     * </pre>
+     */
+    private Node bulk(BulkOperation operation, Node t1, Node t2) {
+        Node result;
+        if (t1 == null || t2 == null) {
+            if (operation == BulkOperation.UNION && t1 == null) {
+                result = t2;
+            } else if (operation == BulkOperation.INTERSECTION) {
+                result = null;
+            } else {
+                result = t1;
+            }
+        } else {
+            /*
+             * Split the first tree at the root of the second for a difference,
+             * so that tree's root is the one dropped; otherwise split the
+             * second tree at the root of the first, which is kept
+             */
+            boolean parallel = this.sizeOf(t1) + this.sizeOf(t2) >= PARALLEL_THRESHOLD;
+            Node middle;
+            Split pieces;
+            Node left1;
+            Node left2;
+            Node right1;
+            Node right2;
+            if (operation == BulkOperation.DIFFERENCE) {
+                middle = t2;
+                pieces = this.split(t1, t2.label);
+                left1 = pieces.smaller;
+                left2 = middle.left;
+                right1 = pieces.larger;
+                right2 = middle.right;
+            } else {
+                middle = t1;
+                pieces = this.split(t2, t1.label);
+                left1 = middle.left;
+                left2 = pieces.smaller;
+                right1 = middle.right;
+                right2 = pieces.larger;
+            }
+            Node left;
+            Node right;
+            if (parallel) {
+                BulkTask leftTask = new BulkTask(operation, left1, left2);
+                leftTask.fork();
+                right = this.bulk(operation, right1, right2);
+                left = leftTask.join();
+            } else {
+                left = this.bulk(operation, left1, left2);
+                right = this.bulk(operation, right1, right2);
+            }
+            if (operation == BulkOperation.UNION
+                    || (operation == BulkOperation.INTERSECTION && pieces.found)) {
+                result = this.join(left, middle, right);
+            } else {
+                result = this.joinTwo(left, right);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Task computing {@code bulk} on a {@code ForkJoinPool}.
+     */
+    private final class BulkTask extends RecursiveTask<Node> {
+
+        /**
+         * Serialization version, required of every {@code RecursiveTask}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The operation.
+         */
+        private final BulkOperation operation;
+
+        /**
+         * Root of the first tree.
+         */
+        private final Node t1;
+
+        /**
+         * Root of the second tree.
+         */
+        private final Node t2;
+
+        /**
+         * Constructor.
+         *
+         * @param operation
+         *            the operation
+         * @param t1
+         *            the root of the first tree, possibly null
+         * @param t2
+         *            the root of the second tree, possibly null
+         */
+        BulkTask(BulkOperation operation, Node t1, Node t2) {
+            this.operation = operation;
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        @Override
+        protected Node compute() {
+            return Set3a.this.bulk(this.operation, this.t1, this.t2);
+        }
+
+    }
+
+    /**
+     * Replaces the tree by its combination with the tree of {@code s} by
+     * {@code operation}, taking the nodes of {@code s}.
+     *
+     * @param operation
+     *            the operation
+     * @param s
+     *            the other set
+     * @updates this
+     * @clears s
+     * @ensures this = [#this combined with #s by operation]
+     */
+    private void combine(BulkOperation operation, Set3a<T> s) {
+        if (this.sizeOf(this.root) + this.sizeOf(s.root) >= PARALLEL_THRESHOLD) {
+            this.root = ForkJoinPool.commonPool()
+                    .invoke(new BulkTask(operation, this.root, s.root));
+        } else {
+            this.root = this.bulk(operation, this.root, s.root);
+        }
+        s.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Builds a perfectly balanced tree from the next {@code n} elements of
+     * {@code elements}, taken in increasing order: the first half goes to the
+     * left subtree, the next element to the root and the rest to the right
+     * subtree.
+     *
+     * @param elements
+     *            the source of the elements
+     * @param n
+     *            the number of elements to take
+     * @return the root of the tree
+     * @updates elements
+     * @requires <pre>
+     * n >= 0  and  [elements has at least n more elements]  and
+     * [the next n elements of elements are in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE(buildTree))  and  IS_WEIGHT_BALANCED(TREE(buildTree))  and
+     * [in-order traversal of TREE(buildTree) = the next n elements of
+     *  #elements]  and  [elements has advanced past them]
+     * </pre>
+     */
+    private Node buildTree(Iterator<T> elements, int n) {
+        Node result = null;
+        if (n > 0) {
+            int leftSize = (n - 1) / 2;
+            Node left = this.buildTree(elements, leftSize);
+            result = new Node(elements.next());
+            result.left = left;
+            result.right = this.buildTree(elements, n - 1 - leftSize);
+            result.size = n;
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether the in-order traversal of the tree is strictly
+     * increasing.
+     *
+     * @return true if the labels are in strictly increasing order
+     * @ensures isIncreasing = [in-order traversal of TREE($this.root) is
+     *          strictly increasing]
+     */
+    private boolean isIncreasing() {
+        boolean increasing = true;
+        Iterator<T> it = new RangeIterator(null, null);
+        if (it.hasNext()) {
+            T previous = it.next();
+            while (increasing && it.hasNext()) {
+                T current = it.next();
+                increasing = previous.compareTo(current) < 0;
+                previous = current;
+            }
+        }
+        return increasing;
+    }
+
+    /**
+     * Checks that the part of the convention concerning the subtree rooted at
+     * {@code n} holds, given the bounds its labels must lie strictly between.
+     *
+     * @param n
+     *            the root of the subtree, possibly null
+     * @param lower
+     *            the label every label of the subtree must exceed, or null
+     * @param upper
+     *            the label every label of the subtree must precede, or null
+     * @return |TREE(n)|
+     */
+    private int checkSubtree(Node n, T lower, T upper) {
+        int size = 0;
+        if (n != null) {
+            assert n.label != null : "Violation of: n.label /= null";
+            assert lower == null || lower.compareTo(n.label) < 0
+                    : "Violation of: IS_BST(TREE($this.root))";
+            assert upper == null || n.label.compareTo(upper) < 0
+                    : "Violation of: IS_BST(TREE($this.root))";
+            int leftSize = this.checkSubtree(n.left, lower, n.label);
+            int rightSize = this.checkSubtree(n.right, n.label, upper);
+            assert leftSize + 1 <= DELTA * (rightSize + 1)
+                    && rightSize + 1 <= DELTA * (leftSize + 1)
+                    : "Violation of: IS_WEIGHT_BALANCED(TREE($this.root))";
+            size = 1 + leftSize + rightSize;
+            assert n.size == size : "Violation of: n.size = |TREE(n)|";
+        }
+        return size;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off;
+     *         otherwise reports a violated assertion)
+     * @convention <pre>
+     * IS_BST(TREE($this.root))  and  IS_WEIGHT_BALANCED(TREE($this.root))  and
+     * [for every node n reachable from $this.root, n.label /= null  and
+     *  n.size = |TREE(n)|]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        this.checkSubtree(this.root, null, null);
+        return true;
     }
 
     /**
@@ -204,8 +971,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
     private void createNewRep() {
 
-        // TODO - fill in body
-        this.tree = new BinaryTree1<T>();
+        this.root = null;
 
     }
 
@@ -218,11 +984,64 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
     public Set3a() {
 
-        // TODO - fill in body
         this.createNewRep();
+        assert this.conventionHolds();
 
     }
 
+    /**
+     * Returns a new {@code Set3a} holding the entries of {@code q}, which are
+     * in increasing order, built in O(|q|) time without comparing them.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param q
+     *            the entries in increasing order
+     * @return the new set
+     * @requires [q is in strictly increasing order]
+     * @ensures fromSorted = entries(q)
+     */
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(Queue<T> q) {
+        assert q != null : "Violation of: q is not null";
+
+        return fromSorted(q.iterator(), q.length());
+    }
+
+    /**
+     * Returns a new {@code Set3a} holding the next {@code n} elements of
+     * {@code elements}, which are in increasing order, built in O(n) time
+     * without comparing them.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param elements
+     *            the source of the elements
+     * @param n
+     *            the number of elements to take
+     * @return the new set
+     * @updates elements
+     * @requires <pre>
+     * n >= 0  and  [elements has at least n more elements]  and
+     * [the next n elements of elements are in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * fromSorted = [the set of the next n elements of #elements]  and
+     * [elements has advanced past them]
+     * </pre>
+     */
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(Iterator<T> elements,
+            int n) {
+        assert elements != null : "Violation of: elements is not null";
+        assert n >= 0 : "Violation of: n >= 0";
+
+        Set3a<T> set = new Set3a<T>();
+        set.root = set.buildTree(elements, n);
+        assert set.isIncreasing()
+                : "Violation of: [the next n elements are in strictly increasing order]";
+        assert set.conventionHolds();
+        return set;
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -255,8 +1074,9 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
         localSource.createNewRep();
+        assert this.conventionHolds();
     }
 
     /*
@@ -268,8 +1088,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert !this.contains(x) : "Violation of: x is not in this";
 
-        // TODO - fill in body
-        insertInTree(this.tree, x);
+        this.insertInTree(x);
 
     }
 
@@ -278,40 +1097,337 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert this.contains(x) : "Violation of: x is in this";
 
-        // TODO - fill in body
-
-        return removeFromTree(this.tree, x);
+        return this.removeFromTree(x);
     }
 
     @Override
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
-        // TODO - fill in body
-
-        return removeSmallest(this.tree);
+        return this.removeSmallest();
     }
 
     @Override
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        // TODO - fill in body
-
-        return isInTree(this.tree, x);
+        return this.isInTree(this.root, x);
     }
 
     @Override
     public final int size() {
-
-        // TODO - fill in body
-
-        return this.tree.size();
+        return this.sizeOf(this.root);
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new RangeIterator(null, null);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns the largest element of {@code this} that is not larger than
+     * {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the element to look for
+     * @return the largest element <= x, or null
+     * @ensures <pre>
+     * if there exists y: T (y is in this  and  y <= x) then
+     *  floor is in this  and  floor <= x  and
+     *  for all y: T where (y is in this  and  y <= x) (y <= floor)
+     * else
+     *  floor = null
+     * </pre>
+     */
+    public final T floor(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T result = null;
+        Node current = this.root;
+        while (current != null) {
+            int comparison = x.compareTo(current.label);
+            if (comparison < 0) {
+                current = current.left;
+            } else {
+                result = current.label;
+                if (comparison == 0) {
+                    current = null;
+                } else {
+                    current = current.right;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the smallest element of {@code this} that is not smaller than
+     * {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the element to look for
+     * @return the smallest element >= x, or null
+     * @ensures <pre>
+     * if there exists y: T (y is in this  and  x <= y) then
+     *  ceiling is in this  and  x <= ceiling  and
+     *  for all y: T where (y is in this  and  x <= y) (ceiling <= y)
+     * else
+     *  ceiling = null
+     * </pre>
+     */
+    public final T ceiling(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T result = null;
+        Node current = this.root;
+        while (current != null) {
+            int comparison = x.compareTo(current.label);
+            if (comparison > 0) {
+                current = current.right;
+            } else {
+                result = current.label;
+                if (comparison == 0) {
+                    current = null;
+                } else {
+                    current = current.left;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds to {@code this} all elements of {@code s}, taking them from
+     * {@code s}, in O(m log(n/m + 1)) time where m and n are the sizes of the
+     * smaller and the larger set.
+     *
+     * @param s
+     *            the set whose elements are to be added
+     * @updates this
+     * @clears s
+     * @ensures this = #this union #s
+     */
+    public final void union(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        this.combine(BulkOperation.UNION, s);
+    }
+
+    /**
+     * Removes from {@code this} all elements not in {@code s}, in
+     * O(m log(n/m + 1)) time where m and n are the sizes of the smaller and
+     * the larger set.
+     *
+     * @param s
+     *            the set whose elements are to be kept
+     * @updates this
+     * @clears s
+     * @ensures this = #this intersection #s
+     */
+    public final void intersection(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        this.combine(BulkOperation.INTERSECTION, s);
+    }
+
+    /**
+     * Removes from {@code this} all elements of {@code s}, in
+     * O(m log(n/m + 1)) time where m and n are the sizes of the smaller and
+     * the larger set.
+     *
+     * @param s
+     *            the set whose elements are to be removed
+     * @updates this
+     * @clears s
+     * @ensures this = #this \ #s
+     */
+    public final void difference(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        this.combine(BulkOperation.DIFFERENCE, s);
+    }
+
+    /**
+     * Returns the element of {@code this} that has exactly {@code k} smaller
+     * elements in {@code this}, i.e., the k-th smallest counting from 0.
+     *
+     * @param k
+     *            the number of smaller elements
+     * @return the element of rank k
+     * @requires 0 <= k < |this|
+     * @ensures <pre>
+     * select is in this  and
+     *  |{y: T where (y is in this  and  y < select)}| = k
+     * </pre>
+     */
+    public final T select(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < this.size() : "Violation of: k < |this|";
+
+        Node current = this.root;
+        int remaining = k;
+        int leftSize = this.sizeOf(current.left);
+        while (remaining != leftSize) {
+            if (remaining < leftSize) {
+                current = current.left;
+            } else {
+                remaining -= leftSize + 1;
+                current = current.right;
+            }
+            leftSize = this.sizeOf(current.left);
+        }
+        return current.label;
+    }
+
+    /**
+     * Returns the number of elements of {@code this} smaller than {@code x},
+     * which need not be in {@code this}.
+     *
+     * @param x
+     *            the element to compare with
+     * @return the number of elements < x
+     * @ensures rank = |{y: T where (y is in this  and  y < x)}|
+     */
+    public final int rank(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int rank = 0;
+        Node current = this.root;
+        while (current != null) {
+            int comparison = x.compareTo(current.label);
+            if (comparison < 0) {
+                current = current.left;
+            } else {
+                rank += this.sizeOf(current.left);
+                if (comparison == 0) {
+                    current = null;
+                } else {
+                    rank++;
+                    current = current.right;
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns a view of the elements of {@code this} from {@code lo}
+     * (inclusive) up to {@code hi} (exclusive). Each iterator of the view
+     * visits, in increasing order, the elements in that range when it is
+     * created; it takes O(log |this|) time to start and then O(1) amortized
+     * time per element, never looking at elements outside the range.
+     *
+     * @param lo
+     *            the lower bound of the range, inclusive
+     * @param hi
+     *            the upper bound of the range, exclusive
+     * @return the view of the range
+     * @requires lo <= hi
+     * @ensures <pre>
+     * [every iterator of subSet visits, in increasing order, exactly the
+     *  elements y of this with lo <= y < hi]
+     * </pre>
+     */
+    public final Iterable<T> subSet(T lo, T hi) {
+        assert lo != null : "Violation of: lo is not null";
+        assert hi != null : "Violation of: hi is not null";
+        assert lo.compareTo(hi) <= 0 : "Violation of: lo <= hi";
+
+        return () -> new RangeIterator(lo, hi);
+    }
+
+    /**
+     * Iterator over the elements of {@code this}, or of those in a range, in
+     * increasing order. It keeps on a stack the nodes on the path to the next
+     * element whose left subtree has been visited but not the node itself nor
+     * its right subtree, so it never holds more than O(log |this|) nodes and
+     * copies nothing.
+     */
+    private final class RangeIterator implements Iterator<T> {
+
+        /**
+         * Nodes still to be visited, with their right subtrees; the next
+         * element is at the top.
+         */
+        private final Node[] stack;
+
+        /**
+         * Number of nodes on {@code stack}.
+         */
+        private int height;
+
+        /**
+         * Upper bound of the range, exclusive, or null if there is none.
+         */
+        private final T hi;
+
+        /**
+         * Constructor: finds the path to the first element not smaller than
+         * {@code lo}.
+         *
+         * @param lo
+         *            the lower bound of the range, inclusive, or null if there
+         *            is none
+         * @param hi
+         *            the upper bound of the range, exclusive, or null if there
+         *            is none
+         */
+        RangeIterator(T lo, T hi) {
+            this.stack = Set3a.this.newPath();
+            this.height = 0;
+            this.hi = hi;
+            Node current = Set3a.this.root;
+            while (current != null) {
+                if (lo == null || lo.compareTo(current.label) <= 0) {
+                    this.stack[this.height] = current;
+                    this.height++;
+                    current = current.left;
+                } else {
+                    current = current.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.height > 0 && (this.hi == null
+                    || this.stack[this.height - 1].label.compareTo(this.hi) < 0);
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.height--;
+            Node visited = this.stack[this.height];
+            Node current = visited.right;
+            while (current != null) {
+                this.stack[this.height] = current;
+                this.height++;
+                current = current.left;
+            }
+            return visited.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
     }
 
 }
@@ -0,0 +1,257 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * Thread-safe {@code Set} represented as a lock-free skip list
+ * ({@code java.util.concurrent.ConcurrentSkipListSet}), with implementations
+ * of primary methods.
+ * <p>
+ * {@code add}, {@code remove}, {@code removeAny} and {@code contains} may be
+ * called from any number of threads at once and never block each other;
+ * each takes O(log |this|) expected time. The skip list's own size takes time
+ * proportional to its length, so the size is kept in a {@code LongAdder}
+ * instead, updated only by the operations that actually changed the set.
+ * Kernel methods are atomic, but a sequence of them is not:
+ * {@code addIfAbsent} and {@code removeIfPresent} are provided for the usual
+ * check-then-update steps, e.g. when several threads remove duplicates from
+ * the same stream. {@code clear}, {@code transferFrom} and
+ * {@code newInstance} must not run concurrently with other operations.
+ * Iterators visit the elements in increasing order and are weakly consistent:
+ * they never fail, and reflect some of the changes made after they were
+ * created.
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @convention <pre>
+ * $this.size = |$this.elements|, once no update is in progress
+ * </pre>
+ * @correspondence this = $this.elements
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class Set4<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Elements included in {@code this}.
+     */
+    private ConcurrentSkipListSet<T> elements;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private LongAdder size;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.elements = new ConcurrentSkipListSet<T>();
+        this.size = new LongAdder();
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set4<?>
+                : "" + "Violation of: source is of dynamic type Set4<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set4<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set4<T> localSource = (Set4<T>) source;
+        this.elements = localSource.elements;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.addIfAbsent(x);
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        /*
+         * Return the element stored in the set, which is equal to x but may
+         * be a different object
+         */
+        T removed = this.elements.ceiling(x);
+        this.removeIfPresent(x);
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        T removed = this.elements.pollFirst();
+        if (removed == null) {
+            /*
+             * Another thread emptied the set after the size was checked
+             */
+            throw new NoSuchElementException();
+        }
+        this.size.decrement();
+        return removed;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.elements.contains(x);
+    }
+
+    @Override
+    public final int size() {
+        return this.size.intValue();
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set4Iterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to {@code this} unless it is already there, as one atomic
+     * step.
+     *
+     * @param x
+     *            the element to be added
+     * @return whether {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures <pre>
+     * addIfAbsent = (x is not in #this)  and  this = #this union {x}
+     * </pre>
+     */
+    public final boolean addIfAbsent(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean added = this.elements.add(x);
+        if (added) {
+            this.size.increment();
+        }
+        return added;
+    }
+
+    /**
+     * Removes {@code x} from {@code this} if it is there, as one atomic step.
+     *
+     * @param x
+     *            the element to be removed
+     * @return whether {@code x} was removed
+     * @updates this
+     * @ensures removeIfPresent = (x is in #this) and this = #this \ {x}
+     */
+    public final boolean removeIfPresent(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean removed = this.elements.remove(x);
+        if (removed) {
+            this.size.decrement();
+        }
+        return removed;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set4}.
+     */
+    private final class Set4Iterator implements Iterator<T> {
+
+        /**
+         * Weakly consistent iterator of the skip list.
+         */
+        private final Iterator<T> iterator;
+
+        /**
+         * No-argument constructor.
+         */
+        Set4Iterator() {
+            this.iterator = Set4.this.elements.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            return this.iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+}
@@ -1,3 +1,14 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
 import components.set.Set;
 import components.set.Set1L;
 
@@ -6,6 +17,18 @@ import components.set.Set1L;
  */
 public class Set3aTest extends SetTest {
 
+    /**
+     * Number of elements used by the sorted-insertion test; far more than an
+     * unbalanced tree could take without overflowing the stack.
+     */
+    private static final int SORTED_ELEMENTS = 1000000;
+
+    /**
+     * Range of the random elements used by the bulk operation tests; large
+     * enough for the operations to run in parallel.
+     */
+    private static final int BULK_RANGE = 60000;
+
     @Override
     protected final Set<String> constructorTest() {
         return new Set3a<String>();
@@ -16,4 +39,243 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /**
+     * Returns the {@code i}-th element of the sorted-insertion test, padded
+     * with zeros so that string order matches numeric order.
+     *
+     * @param i
+     *            the index of the element
+     * @return the element
+     */
+    private static String element(int i) {
+        return String.format("%07d", i);
+    }
+
+    /**
+     * Tests adding elements in increasing order, then removing every other
+     * one and draining the rest, which must come out in increasing order.
+     */
+    @Test
+    public void testSortedInsertion() {
+        Set<String> s = this.constructorTest();
+        for (int i = 0; i < SORTED_ELEMENTS; i++) {
+            s.add(element(i));
+        }
+        assertEquals(SORTED_ELEMENTS, s.size());
+        for (int i = 0; i < SORTED_ELEMENTS; i += 2) {
+            assertTrue(s.contains(element(i)));
+            assertEquals(element(i), s.remove(element(i)));
+        }
+        assertEquals(SORTED_ELEMENTS / 2, s.size());
+        for (int i = 1; i < SORTED_ELEMENTS; i += 2) {
+            assertEquals(element(i), s.removeAny());
+        }
+        assertEquals(0, s.size());
+    }
+
+    /**
+     * Returns a {@code Set3a} holding the even numbers from 0 to 18, as
+     * two-digit strings.
+     *
+     * @return the set
+     */
+    private static Set3a<String> evens() {
+        Set3a<String> s = new Set3a<String>();
+        for (int i = 0; i < 20; i += 2) {
+            s.add(String.format("%02d", i));
+        }
+        return s;
+    }
+
+    /**
+     * Tests floor and ceiling on elements in, between and outside the set.
+     */
+    @Test
+    public void testFloorAndCeiling() {
+        Set3a<String> s = evens();
+        assertEquals("04", s.floor("04"));
+        assertEquals("04", s.ceiling("04"));
+        assertEquals("04", s.floor("05"));
+        assertEquals("06", s.ceiling("05"));
+        assertEquals("18", s.floor("99"));
+        assertNull(s.ceiling("99"));
+        assertEquals("00", s.ceiling("-"));
+        assertNull(s.floor("-"));
+    }
+
+    /**
+     * Tests that subSet visits exactly the elements in the range, in order.
+     */
+    @Test
+    public void testSubSet() {
+        Set3a<String> s = evens();
+        StringBuilder visited = new StringBuilder();
+        for (String x : s.subSet("03", "12")) {
+            visited.append(x).append(' ');
+        }
+        assertEquals("04 06 08 10 ", visited.toString());
+        visited.setLength(0);
+        for (String x : s.subSet("04", "04")) {
+            visited.append(x).append(' ');
+        }
+        assertEquals("", visited.toString());
+        visited.setLength(0);
+        for (String x : s.subSet("-", "99")) {
+            visited.append(x);
+        }
+        assertEquals("00020406081012141618", visited.toString());
+        assertEquals(10, s.size());
+    }
+
+    /**
+     * Tests that select and rank agree with the order of the elements.
+     */
+    @Test
+    public void testSelectAndRank() {
+        Set3a<String> s = evens();
+        for (int k = 0; k < s.size(); k++) {
+            String x = String.format("%02d", 2 * k);
+            assertEquals(x, s.select(k));
+            assertEquals(k, s.rank(x));
+        }
+        assertEquals(3, s.rank("05"));
+        assertEquals(0, s.rank("-"));
+        assertEquals(10, s.rank("99"));
+        s.remove("00");
+        assertEquals("02", s.select(0));
+        assertEquals(2, s.rank("05"));
+    }
+
+    /**
+     * Fills {@code s} and {@code sRef} with the same {@code count} random
+     * elements (possibly fewer, as repeats are skipped).
+     *
+     * @param random
+     *            the source of random numbers
+     * @param count
+     *            the number of elements to draw
+     * @param s
+     *            the {@code Set3a} to fill
+     * @param sRef
+     *            the reference set to fill
+     */
+    private static void fillRandom(Random random, int count, Set3a<String> s,
+            Set<String> sRef) {
+        for (int i = 0; i < count; i++) {
+            String x = element(random.nextInt(BULK_RANGE));
+            if (!sRef.contains(x)) {
+                s.add(x);
+                sRef.add(x);
+            }
+        }
+    }
+
+    /**
+     * Tests union, intersection and difference of random sets of various
+     * sizes against the same operations done one element at a time.
+     */
+    @Test
+    public void testBulkOperations() {
+        Random random = new Random(2231);
+        int[][] sizes = { { 0, 10 }, { 10, 0 }, { 100, 7 }, { 5, 300 },
+                { 20000, 30000 }, { 40000, 500 } };
+        for (int[] size : sizes) {
+            for (int operation = 0; operation < 3; operation++) {
+                Set3a<String> s1 = new Set3a<String>();
+                Set3a<String> s2 = new Set3a<String>();
+                Set<String> s1Ref = this.constructorRef();
+                Set<String> s2Ref = this.constructorRef();
+                fillRandom(random, size[0], s1, s1Ref);
+                fillRandom(random, size[1], s2, s2Ref);
+                Set<String> expected = this.constructorRef();
+                for (String x : s1Ref) {
+                    boolean inS2 = s2Ref.contains(x);
+                    if (operation == 0 || (operation == 1) == inS2) {
+                        expected.add(x);
+                    }
+                }
+                if (operation == 0) {
+                    for (String x : s2Ref) {
+                        if (!expected.contains(x)) {
+                            expected.add(x);
+                        }
+                    }
+                    s1.union(s2);
+                } else if (operation == 1) {
+                    s1.intersection(s2);
+                } else {
+                    s1.difference(s2);
+                }
+                assertEquals(expected, s1);
+                assertEquals(0, s2.size());
+            }
+        }
+    }
+
+    /**
+     * Tests building sets of various sizes from a sorted queue, which must be
+     * left unchanged.
+     */
+    @Test
+    public void testFromSortedQueue() {
+        for (int n = 0; n < 70; n++) {
+            Queue<String> q = new Queue1L<String>();
+            Set<String> sExpected = this.constructorRef();
+            for (int i = 0; i < n; i++) {
+                q.enqueue(element(i));
+                sExpected.add(element(i));
+            }
+            Set3a<String> s = Set3a.fromSorted(q);
+            assertEquals(sExpected, s);
+            assertEquals(n, q.length());
+            for (int i = 0; i < n; i++) {
+                assertEquals(element(i), s.select(i));
+            }
+        }
+    }
+
+    /**
+     * Tests that building a set from an iterator takes exactly the number of
+     * elements asked for, and that the set can then be updated.
+     */
+    @Test
+    public void testFromSortedIterator() {
+        Queue<String> q = new Queue1L<String>();
+        for (int i = 0; i < 10; i++) {
+            q.enqueue(element(i));
+        }
+        Iterator<String> it = q.iterator();
+        Set3a<String> s = Set3a.fromSorted(it, 6);
+        assertEquals(element(6), it.next());
+        assertEquals(6, s.size());
+        s.add(element(8));
+        s.remove(element(0));
+        assertEquals(element(1), s.select(0));
+        assertEquals(element(8), s.select(5));
+    }
+
+    /**
+     * Tests that the iterator visits the elements in increasing order and
+     * leaves the set unchanged.
+     */
+    @Test
+    public void testIteratorOrder() {
+        Random random = new Random(2221);
+        Set<String> s = this.constructorTest();
+        for (int i = 0; i < 1000; i++) {
+            String x = element(random.nextInt(BULK_RANGE));
+            if (!s.contains(x)) {
+                s.add(x);
+            }
+        }
+        int count = 0;
+        String previous = "";
+        for (String x : s) {
+            assertTrue(previous.compareTo(x) < 0);
+            previous = x;
+            count++;
+        }
+        assertEquals(s.size(), count);
+    }
+
 }
@@ -0,0 +1,113 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set4}.
+ */
+public class Set4Test extends SetTest {
+
+    /**
+     * Number of threads used by the concurrent tests.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of elements each thread works on in the concurrent tests.
+     */
+    private static final int ELEMENTS_PER_THREAD = 5000;
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set4<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Runs {@code task} on {@code THREADS} threads, passing each its number,
+     * waits for all of them to finish, and rethrows the first failure of any
+     * of them, so that assertions failing in a thread fail the test.
+     *
+     * @param task
+     *            the work of one thread
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void runThreads(IntConsumer task) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int number = t;
+            threads[t] = new Thread(() -> task.accept(number));
+            threads[t].setUncaughtExceptionHandler(
+                    (thread, e) -> failure.compareAndSet(null, e));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("A worker thread failed", failure.get());
+        }
+    }
+
+    /**
+     * Tests several threads adding and removing disjoint elements at once.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test
+    public void testConcurrentAddRemove() throws InterruptedException {
+        Set4<String> s = new Set4<>();
+        runThreads(t -> {
+            for (int i = 0; i < ELEMENTS_PER_THREAD; i++) {
+                s.add(t + "-" + i);
+            }
+            for (int i = 0; i < ELEMENTS_PER_THREAD; i += 2) {
+                s.remove(t + "-" + i);
+            }
+        });
+        assertEquals(THREADS * ELEMENTS_PER_THREAD / 2, s.size());
+        String previous = "";
+        for (String x : s) {
+            assertTrue(previous.compareTo(x) < 0);
+            previous = x;
+        }
+    }
+
+    /**
+     * Tests several threads adding the same elements at once with
+     * addIfAbsent: each must be added by exactly one thread.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test
+    public void testConcurrentAddIfAbsent() throws InterruptedException {
+        Set4<String> s = new Set4<>();
+        AtomicInteger added = new AtomicInteger();
+        runThreads(t -> {
+            for (int i = 0; i < ELEMENTS_PER_THREAD; i++) {
+                if (s.addIfAbsent("x" + i)) {
+                    added.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(ELEMENTS_PER_THREAD, s.size());
+        assertEquals(ELEMENTS_PER_THREAD, added.get());
+    }
+
+}
@@ -0,0 +1,663 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachineSecondary;
+
+/**
+ * {@code SortingMachine} represented as a heap that is kept up to date during
+ * insertion as well as extraction, with implementations of primary methods and
+ * of priority queue operations.
+ * <p>
+ * Unlike {@code SortingMachine5a}, which collects the entries in a
+ * {@code Queue} and builds the heap only in {@code changeToExtractionMode},
+ * every entry is sifted into the heap as it is added, so {@code add} and
+ * {@code removeFirst} take O(log n) time and {@code changeToExtractionMode}
+ * O(1). {@code insert}, {@code peek}, {@code removeMin} and
+ * {@code decreaseKey} work in either mode, so the machine can also be used as
+ * a priority queue with any interleaving of insertions and extractions.
+ * {@code insert} returns a {@code Handle} on the new entry, which
+ * {@code decreaseKey} uses to find the entry in the heap in O(1) time; each
+ * entry of the heap records its own position, which the sifting methods keep
+ * up to date.
+ *
+ * @param <T>
+ *            type of {@code SortingMachine} entries
+ * @mathdefinitions <pre>
+ * IS_TOTAL_PREORDER (
+ *   r: binary relation on T
+ *  ) : boolean is
+ *  for all x, y, z: T
+ *   ((r(x, y) or r(y, x))  and
+ *    (if (r(x, y) and r(y, z)) then r(x, z)))
+ *
+ * SUBTREE_IS_HEAP (
+ *   a: string of Handle,
+ *   start: integer,
+ *   stop: integer,
+ *   r: binary relation on T
+ *  ) : boolean is
+ *  [the subtree of a (when a is interpreted as a complete binary tree) rooted
+ *   at index start and only through entry stop of a satisfies the heap
+ *   ordering property according to the relation r on the values of its
+ *   entries]
+ * </pre>
+ * @convention <pre>
+ * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method])  and
+ * 0 <= $this.heapSize <= |$this.heap|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < $this.heapSize)
+ *   ([entry at position i in $this.heap is not null, its value is not null,
+ *     and its index is i])  and
+ * for all i: integer
+ *     where ($this.heapSize <= i  and  i < |$this.heap|)
+ *   ([entry at position i in $this.heap is null])  and
+ * SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+ *   [relation computed by $this.machineOrder.compare method])
+ * </pre>
+ * @correspondence <pre>
+ * this = ($this.insertionMode, $this.machineOrder,
+ *         [multiset of the values of the entries of
+ *          $this.heap[0, $this.heapSize)])
+ * </pre>
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ *
+ */
+public class SortingMachine5b<T> extends SortingMachineSecondary<T> {
+
+    /**
+     * Handle on an entry of a {@code SortingMachine5b}, returned by
+     * {@code insert} and used by {@code decreaseKey}.
+     *
+     * @param <E>
+     *            type of the entry
+     */
+    public static final class Handle<E> {
+
+        /**
+         * Value of the entry.
+         */
+        private E value;
+
+        /**
+         * Position of the entry in the heap, or -1 once it has been removed.
+         */
+        private int index;
+
+        /**
+         * Constructor from value and position.
+         *
+         * @param value
+         *            the value of the entry
+         * @param index
+         *            the position of the entry in the heap
+         */
+        private Handle(E value, int index) {
+            this.value = value;
+            this.index = index;
+        }
+
+        /**
+         * Reports the current value of the entry.
+         *
+         * @return the value
+         */
+        public E value() {
+            return this.value;
+        }
+
+        /**
+         * Reports whether the entry is still in a machine: it has not been
+         * removed by {@code removeMin} or {@code removeFirst}, or discarded by
+         * {@code clear} or by {@code transferFrom} into its machine. When
+         * {@code transferFrom} moves the entry to another machine, the handle
+         * follows it there.
+         *
+         * @return true if the entry is still in a machine
+         */
+        public boolean isInMachine() {
+            return this.index >= 0;
+        }
+
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the heap array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Order.
+     */
+    private Comparator<T> machineOrder;
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Heap.
+     */
+    private Handle<T>[] heap;
+
+    /**
+     * Heap size.
+     */
+    private int heapSize;
+
+    /**
+     * Returns a new heap array of {@code capacity} entries.
+     *
+     * @param capacity
+     *            the capacity
+     * @return the new array
+     */
+    @SuppressWarnings("unchecked")
+    private Handle<T>[] newHeap(int capacity) {
+        /*
+         * With "new Handle<T>[...]" in place of "new Handle<?>[...]" it does
+         * not compile; as shown, it results in a warning about an unchecked
+         * cast, though it cannot fail.
+         */
+        return (Handle<T>[]) new Handle<?>[capacity];
+    }
+
+    /**
+     * Exchanges entries at indices {@code i} and {@code j} of the heap, and
+     * records their new positions in them.
+     *
+     * @param i
+     *            one index
+     * @param j
+     *            the other index
+     * @updates $this.heap
+     * @requires 0 <= i < $this.heapSize and 0 <= j < $this.heapSize
+     * @ensures <pre>
+     * $this.heap = [#$this.heap with entries at indices i and j exchanged]  and
+     * [the entries at indices i and j have indices i and j]
+     * </pre>
+     */
+    private void exchangeEntries(int i, int j) {
+        assert 0 <= i : "Violation of: 0 <= i";
+        assert i < this.heapSize : "Violation of: i < $this.heapSize";
+        assert 0 <= j : "Violation of: 0 <= j";
+        assert j < this.heapSize : "Violation of: j < $this.heapSize";
+
+        Handle<T> temp = this.heap[i];
+        this.heap[i] = this.heap[j];
+        this.heap[j] = temp;
+        this.heap[i].index = i;
+        this.heap[j].index = j;
+    }
+
+    /**
+     * Reports whether the value of the entry at index {@code i} of the heap
+     * comes before that of the entry at index {@code j}.
+     *
+     * @param i
+     *            one index
+     * @param j
+     *            the other index
+     * @return true if the entry at {@code i} is strictly smaller
+     * @requires 0 <= i < $this.heapSize and 0 <= j < $this.heapSize
+     * @ensures <pre>
+     * isSmaller = [$this.machineOrder.compare($this.heap[i].value,
+     *   $this.heap[j].value) < 0]
+     * </pre>
+     */
+    private boolean isSmaller(int i, int j) {
+        return this.machineOrder.compare(this.heap[i].value, this.heap[j].value) < 0;
+    }
+
+    /**
+     * Given an index referring to the root of a subtree of the heap that
+     * would be a heap except for its root, sifts the root down to turn that
+     * whole subtree into a heap.
+     *
+     * @param top
+     *            the index of the root of the "subtree"
+     * @updates $this.heap
+     * @requires <pre>
+     * 0 <= top  and
+     * SUBTREE_IS_HEAP($this.heap, 2 * top + 1, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])  and
+     * SUBTREE_IS_HEAP($this.heap, 2 * top + 2, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP($this.heap, top, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])  and
+     * [$this.heap is a permutation of #$this.heap, and its entries record
+     *  their positions]
+     * </pre>
+     */
+    private void siftDown(int top) {
+        assert 0 <= top : "Violation of: 0 <= top";
+
+        int left = 2 * top + 1;
+        int right = 2 * top + 2;
+        int smallest = top;
+
+        if (left < this.heapSize && this.isSmaller(left, smallest)) {
+            smallest = left;
+        }
+        if (right < this.heapSize && this.isSmaller(right, smallest)) {
+            smallest = right;
+        }
+        if (smallest != top) {
+            this.exchangeEntries(top, smallest);
+            this.siftDown(smallest);
+        }
+    }
+
+    /**
+     * Given an index referring to an entry of the heap that would be a heap
+     * except that the entry may be smaller than its ancestors, sifts it up to
+     * turn the whole heap into a heap.
+     *
+     * @param bottom
+     *            the index of the entry
+     * @updates $this.heap
+     * @requires <pre>
+     * 0 <= bottom < $this.heapSize  and
+     * [$this.heap satisfies the heap ordering property except possibly
+     *  between the entry at index bottom and its ancestors]
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])  and
+     * [$this.heap is a permutation of #$this.heap, and its entries record
+     *  their positions]
+     * </pre>
+     */
+    private void siftUp(int bottom) {
+        assert 0 <= bottom : "Violation of: 0 <= bottom";
+        assert bottom < this.heapSize : "Violation of: bottom < $this.heapSize";
+
+        if (bottom > 0) {
+            int parent = (bottom - 1) / 2;
+            if (this.isSmaller(bottom, parent)) {
+                this.exchangeEntries(bottom, parent);
+                this.siftUp(parent);
+            }
+        }
+    }
+
+    /**
+     * Marks the handles on all the entries of the heap as no longer in a
+     * machine, before the heap is discarded.
+     *
+     * @updates [the handles on the entries of $this.heap[0, $this.heapSize)]
+     * @ensures [those handles have index -1]
+     */
+    private void invalidateHandles() {
+        for (int i = 0; i < this.heapSize; i++) {
+            this.heap[i].index = -1;
+        }
+    }
+
+    /**
+     * Checks if the subtree of the heap rooted at the given {@code top} is a
+     * heap whose entries record their positions.
+     *
+     * @param top
+     *            the index of the root of the "subtree"
+     * @return true if the subtree rooted at {@code top} is a heap; false
+     *         otherwise
+     * @requires 0 <= top
+     * @ensures <pre>
+     * isHeap = SUBTREE_IS_HEAP($this.heap, top, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])  and
+     *   [the entries of that subtree record their positions]
+     * </pre>
+     */
+    private boolean isHeap(int top) {
+        boolean isHeap = true;
+        if (top < this.heapSize) {
+            isHeap = this.heap[top] != null && this.heap[top].index == top
+                    && this.heap[top].value != null;
+            int left = 2 * top + 1;
+            int right = left + 1;
+            if (isHeap && left < this.heapSize) {
+                isHeap = !this.isSmaller(left, top) && this.isHeap(left);
+            }
+            if (isHeap && right < this.heapSize) {
+                isHeap = !this.isSmaller(right, top) && this.isHeap(right);
+            }
+        }
+        return isHeap;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * 0 <= $this.heapSize <= |$this.heap|  and
+     * for all i: integer
+     *     where ($this.heapSize <= i  and  i < |$this.heap|)
+     *   ([entry at position i in $this.heap is null])  and
+     * SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+     *   [relation computed by $this.machineOrder.compare method])  and
+     * [the entries of $this.heap[0, $this.heapSize) are not null, have values
+     *  that are not null, and record their positions]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert 0 <= this.heapSize : "Violation of: 0 <= $this.heapSize";
+        assert this.heapSize <= this.heap.length
+                : "Violation of: $this.heapSize <= |$this.heap|";
+        for (int i = this.heapSize; i < this.heap.length; i++) {
+            assert this.heap[i] == null : ""
+                    + "Violation of: entries of $this.heap past $this.heapSize are null";
+        }
+        assert this.isHeap(0) : ""
+                + "Violation of: SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,"
+                + " [relation computed by $this.machineOrder.compare method])";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method]
+     * @ensures <pre>
+     * $this.insertionMode = true  and
+     * $this.machineOrder = order  and
+     * $this.heapSize = 0
+     * </pre>
+     */
+    private void createNewRep(Comparator<T> order) {
+        this.machineOrder = order;
+        this.insertionMode = true;
+        this.heap = this.newHeap(INITIAL_CAPACITY);
+        this.heapSize = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from order.
+     *
+     * @param order
+     *            total preorder for sorting
+     */
+    public SortingMachine5b(Comparator<T> order) {
+        this.createNewRep(order);
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final SortingMachine<T> newInstance() {
+        try {
+            return this.getClass().getConstructor(Comparator.class)
+                    .newInstance(this.machineOrder);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.invalidateHandles();
+        this.createNewRep(this.machineOrder);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(SortingMachine<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof SortingMachine5b<?>
+                : "" + "Violation of: source is of dynamic type SortingMachine5b<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * SortingMachine5b<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        SortingMachine5b<T> localSource = (SortingMachine5b<T>) source;
+        // The entries of this are discarded; those of source keep their handles
+        this.invalidateHandles();
+        this.insertionMode = localSource.insertionMode;
+        this.machineOrder = localSource.machineOrder;
+        this.heap = localSource.heap;
+        this.heapSize = localSource.heapSize;
+        localSource.createNewRep(localSource.machineOrder);
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        this.insert(x);
+    }
+
+    @Override
+    public final void changeToExtractionMode() {
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        // The heap is already built
+        this.insertionMode = false;
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T removeFirst() {
+        assert !this.isInInsertionMode() : "Violation of: not this.insertion_mode";
+        assert this.size() > 0 : "Violation of: this.contents /= {}";
+
+        return this.removeMin();
+    }
+
+    @Override
+    public final boolean isInInsertionMode() {
+        return this.insertionMode;
+    }
+
+    @Override
+    public final Comparator<T> order() {
+        return this.machineOrder;
+    }
+
+    @Override
+    public final int size() {
+        return this.heapSize;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new SortingMachine5bIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for
+     * {@code SortingMachine5b}.
+     */
+    private final class SortingMachine5bIterator implements Iterator<T> {
+
+        /**
+         * Number of entries seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * No-argument constructor.
+         */
+        private SortingMachine5bIterator() {
+            this.numberSeen = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < SortingMachine5b.this.heapSize;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T next = SortingMachine5b.this.heap[this.numberSeen].value;
+            this.numberSeen++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation not supported");
+        }
+
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to the contents of {@code this}, in either mode, and
+     * returns a handle on the new entry.
+     *
+     * @param x
+     *            the element to be added
+     * @return a handle on the new entry
+     * @aliases reference {@code x}
+     * @updates this.contents
+     * @ensures <pre>
+     * this.contents = #this.contents union {x}  and
+     * insert.value = x  and  [insert is in this]
+     * </pre>
+     */
+    public final Handle<T> insert(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        if (this.heapSize == this.heap.length) {
+            Handle<T>[] newHeap = this.newHeap(2 * this.heap.length);
+            System.arraycopy(this.heap, 0, newHeap, 0, this.heapSize);
+            this.heap = newHeap;
+        }
+        Handle<T> handle = new Handle<T>(x, this.heapSize);
+        this.heap[this.heapSize] = handle;
+        this.heapSize++;
+        this.siftUp(handle.index);
+        assert this.conventionHolds();
+        return handle;
+    }
+
+    /**
+     * Reports a first entry of {@code this.contents} according to the order,
+     * in either mode, without removing it.
+     *
+     * @return a first entry of {@code this.contents}
+     * @requires this.contents /= {}
+     * @ensures <pre>
+     * peek is in this.contents  and
+     * for all x: T where (x is in this.contents)
+     *   ([relation computed by this.order.compare method](peek, x))
+     * </pre>
+     */
+    public final T peek() {
+        assert this.size() > 0 : "Violation of: this.contents /= {}";
+
+        return this.heap[0].value;
+    }
+
+    /**
+     * Removes and returns a first entry of {@code this.contents} according to
+     * the order, in either mode.
+     *
+     * @return the entry removed
+     * @updates this.contents
+     * @requires this.contents /= {}
+     * @ensures <pre>
+     * removeMin is in #this.contents  and
+     * this.contents = #this.contents \ {removeMin}  and
+     * for all x: T where (x is in this.contents)
+     *   ([relation computed by this.order.compare method](removeMin, x))
+     * </pre>
+     */
+    public final T removeMin() {
+        assert this.size() > 0 : "Violation of: this.contents /= {}";
+
+        Handle<T> root = this.heap[0];
+        // Replace root with the last entry
+        this.heapSize--;
+        this.heap[0] = this.heap[this.heapSize];
+        this.heap[0].index = 0;
+        this.heap[this.heapSize] = null;
+        // Only call siftDown if there are remaining entries
+        if (this.heapSize > 0) {
+            this.siftDown(0);
+        }
+        root.index = -1;
+        assert this.conventionHolds();
+        return root.value;
+    }
+
+    /**
+     * Replaces the value of the entry of {@code handle} with {@code x}, which
+     * comes no later in the order, and moves the entry up the heap
+     * accordingly.
+     *
+     * @param handle
+     *            the handle on the entry
+     * @param x
+     *            the new value of the entry
+     * @aliases reference {@code x}
+     * @updates this.contents
+     * @requires <pre>
+     * [handle is in this]  and
+     * [relation computed by this.order.compare method](x, handle.value)
+     * </pre>
+     * @ensures <pre>
+     * this.contents = (#this.contents \ {#handle.value}) union {x}  and
+     * handle.value = x
+     * </pre>
+     */
+    public final void decreaseKey(Handle<T> handle, T x) {
+        assert handle != null : "Violation of: handle is not null";
+        assert x != null : "Violation of: x is not null";
+        assert handle.index >= 0 && handle.index < this.heapSize
+                && this.heap[handle.index] == handle
+                : "Violation of: handle is in this";
+        assert this.machineOrder.compare(x, handle.value) <= 0
+                : "Violation of: x comes no later than handle.value";
+
+        handle.value = x;
+        this.siftUp(handle.index);
+        assert this.conventionHolds();
+    }
+
+}
@@ -0,0 +1,168 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+
+/**
+ * Customized JUnit test fixture for {@code SortingMachine5b}.
+ */
+public final class SortingMachine5bTest extends SortingMachineTest {
+
+    /**
+     * Number of operations in the randomized priority queue test.
+     */
+    private static final int TEST_OPERATIONS = 20000;
+
+    /**
+     * Comparator<Integer> implementation to be used in the priority queue
+     * tests.
+     */
+    private static class IntegerLT implements Comparator<Integer> {
+
+        @Override
+        public int compare(Integer x, Integer y) {
+            return x.compareTo(y);
+        }
+
+    }
+
+    /**
+     * Comparator instance to be used in the priority queue tests.
+     */
+    private static final IntegerLT INTEGER_ORDER = new IntegerLT();
+
+    @Override
+    protected SortingMachine<String> constructorTest(Comparator<String> order) {
+        return new SortingMachine5b<String>(order);
+    }
+
+    @Override
+    protected SortingMachine<String> constructorRef(Comparator<String> order) {
+        return new SortingMachine1L<String>(order);
+    }
+
+    /**
+     * Tests insert, peek and removeMin interleaved in insertion mode, and
+     * that the machine then sorts what is left in extraction mode.
+     */
+    @Test
+    public void testInterleavedInsertAndRemoveMin() {
+        SortingMachine5b<Integer> m = new SortingMachine5b<Integer>(INTEGER_ORDER);
+        m.insert(5);
+        m.insert(3);
+        m.insert(8);
+        assertEquals(Integer.valueOf(3), m.peek());
+        assertEquals(Integer.valueOf(3), m.removeMin());
+        m.add(1);
+        m.add(9);
+        assertEquals(Integer.valueOf(1), m.removeMin());
+        assertTrue(m.isInInsertionMode());
+        m.changeToExtractionMode();
+        m.insert(7);
+        List<Integer> sorted = new ArrayList<>();
+        while (m.size() > 0) {
+            sorted.add(m.removeFirst());
+        }
+        assertEquals(Arrays.asList(5, 7, 8, 9), sorted);
+    }
+
+    /**
+     * Tests decreaseKey on entries at the bottom, in the middle and at the
+     * top of the heap, and that handles report removal.
+     */
+    @Test
+    public void testDecreaseKey() {
+        SortingMachine5b<Integer> m = new SortingMachine5b<Integer>(INTEGER_ORDER);
+        List<SortingMachine5b.Handle<Integer>> handles = new ArrayList<>();
+        for (int i = 10; i < 20; i++) {
+            handles.add(m.insert(i));
+        }
+        m.decreaseKey(handles.get(9), 0);
+        m.decreaseKey(handles.get(5), 12);
+        m.decreaseKey(handles.get(0), 10);
+        assertEquals(Integer.valueOf(0), handles.get(9).value());
+        assertEquals(Integer.valueOf(0), m.removeMin());
+        assertFalse(handles.get(9).isInMachine());
+        assertTrue(handles.get(5).isInMachine());
+        List<Integer> sorted = new ArrayList<>();
+        while (m.size() > 0) {
+            sorted.add(m.removeMin());
+        }
+        assertEquals(Arrays.asList(10, 11, 12, 12, 13, 14, 16, 17, 18), sorted);
+    }
+
+    /**
+     * Tests that clear and transferFrom mark the handles on the entries they
+     * discard as no longer in a machine, and that handles on transferred
+     * entries follow them.
+     */
+    @Test
+    public void testHandlesAfterClearAndTransferFrom() {
+        SortingMachine5b<Integer> m = new SortingMachine5b<Integer>(INTEGER_ORDER);
+        SortingMachine5b<Integer> source = new SortingMachine5b<Integer>(
+                INTEGER_ORDER);
+        SortingMachine5b.Handle<Integer> cleared = m.insert(1);
+        m.clear();
+        assertFalse(cleared.isInMachine());
+        SortingMachine5b.Handle<Integer> replaced = m.insert(2);
+        SortingMachine5b.Handle<Integer> moved = source.insert(5);
+        source.insert(3);
+        m.transferFrom(source);
+        assertFalse(replaced.isInMachine());
+        assertTrue(moved.isInMachine());
+        m.decreaseKey(moved, 0);
+        assertEquals(Integer.valueOf(0), m.removeMin());
+        assertEquals(Integer.valueOf(3), m.removeMin());
+        assertEquals(0, source.size());
+    }
+
+    /**
+     * Tests a random mix of insert, removeMin and decreaseKey against
+     * {@code java.util.PriorityQueue}.
+     */
+    @Test
+    public void testRandomOperations() {
+        SortingMachine5b<Integer> m = new SortingMachine5b<Integer>(INTEGER_ORDER);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        List<SortingMachine5b.Handle<Integer>> handles = new ArrayList<>();
+        Random random = new Random(2231);
+        for (int i = 0; i < TEST_OPERATIONS; i++) {
+            int choice = random.nextInt(4);
+            if (choice == 0 && m.size() > 0) {
+                assertEquals(expected.poll(), m.removeMin());
+            } else if (choice == 1 && !handles.isEmpty()) {
+                SortingMachine5b.Handle<Integer> handle = handles
+                        .get(random.nextInt(handles.size()));
+                if (handle.isInMachine()) {
+                    int x = handle.value() - random.nextInt(100);
+                    expected.remove(handle.value());
+                    expected.add(x);
+                    m.decreaseKey(handle, x);
+                }
+            } else {
+                int x = random.nextInt(100000);
+                handles.add(m.insert(x));
+                expected.add(x);
+            }
+            assertEquals(expected.size(), m.size());
+            if (m.size() > 0) {
+                assertEquals(expected.peek(), m.peek());
+            }
+        }
+        while (m.size() > 0) {
+            assertEquals(expected.poll(), m.removeMin());
+        }
+    }
+
+}
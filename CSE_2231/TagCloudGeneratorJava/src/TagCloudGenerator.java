@@ -105,10 +105,10 @@ public final class TagCloudGenerator {
     }
 
     /**
-     * Fills the map with word counts from input.
+     * Fills the counter with word counts from input.
      *
-     * @param countMap
-     *            the map to store word counts
+     * @param counts
+     *            the counter to store word counts
      * @param separators
      *            the set of separator characters
      * @param input
@@ -116,13 +116,13 @@ public final class TagCloudGenerator {
      * @throws IOException
      *             if an I/O error occurs
      */
-    private static void fillMap(Map<String, Integer> countMap, Set<Character> separators,
+    private static void fillMap(WordCounter counts, Set<Character> separators,
             BufferedReader input) throws IOException {
-        assert countMap != null : "countMap is null";
+        assert counts != null : "counts is null";
         assert separators != null : "separators is null";
         assert input != null : "input is null";
 
-        countMap.clear();
+        counts.clear();
         String line;
         while ((line = input.readLine()) != null) {
             line = line.toLowerCase();
@@ -130,7 +130,7 @@ public final class TagCloudGenerator {
             while (pos < line.length()) {
                 String token = nextWordOrSeparator(line, pos, separators);
                 if (!separators.contains(token.charAt(0))) {
-                    countMap.put(token, countMap.getOrDefault(token, 0) + 1);
+                    counts.increment(token);
                 }
                 pos += token.length();
             }
@@ -276,14 +276,20 @@ public final class TagCloudGenerator {
     private static void outputTagCloud(PrintWriter output, BufferedReader input, int n)
             throws IOException {
 
-        // Create map to store word counts
-        Map<String, Integer> countMap = new HashMap<>();
+        // Create counter to store word counts
+        WordCounter counts = new WordCounter();
 
         // Create set of separator characters
         Set<Character> separators = generateSetOfSeparators(SEPARATORS);
 
-        // Fill map with word frequencies from input
-        fillMap(countMap, separators, input);
+        // Fill counter with word frequencies from input
+        fillMap(counts, separators, input);
+
+        // Copy the counts into a map, boxing each count once per word
+        Map<String, Integer> countMap = new HashMap<>(2 * counts.size());
+        for (String word : counts) {
+            countMap.put(word, counts.count(word));
+        }
 
         // Sort and output top N words to HTML
         doubleSort(output, n, countMap);
@@ -99,19 +99,19 @@ public final class TagCloudGenerator {
     }
 
     /**
-     * Fills the map with word counts from input.
+     * Fills the counter with word counts from input.
      *
-     * @param countMap
-     *            the map to store word counts
+     * @param counts
+     *            the counter to store word counts
      * @param separators
      *            the set of separator characters
      * @param input
      *            the input reader
      */
-    private static void fillMap(Map<String, Integer> countMap, Set<Character> separators,
+    private static void fillMap(WordCounter counts, Set<Character> separators,
             SimpleReader input) {
-        // Clear any existing entries in the map
-        countMap.clear();
+        // Clear any existing counts
+        counts.clear();
         // Extract words or separators from the line
         while (!input.atEOS()) {
             String line = input.nextLine().toLowerCase();
@@ -120,11 +120,7 @@ public final class TagCloudGenerator {
                 String token = nextWordOrSeparator(line, pos, separators);
                 // If token is a word (not a separator), count it
                 if (!separators.contains(token.charAt(0))) {
-                    if (countMap.hasKey(token)) {
-                        countMap.replaceValue(token, countMap.value(token) + 1);
-                    } else {
-                        countMap.add(token, 1);
-                    }
+                    counts.increment(token);
                 }
                 pos += token.length();
             }
@@ -246,12 +242,17 @@ public final class TagCloudGenerator {
      *            number of words
      */
     private static void outputTagCloud(SimpleWriter output, SimpleReader input, int n) {
-        // Create map to store word counts
-        Map<String, Integer> countMap = new Map1L<>();
+        // Create counter to store word counts
+        WordCounter counts = new WordCounter();
         // Create set of separator characters
         Set<Character> separators = generateSetOfSeparators(SEPARATORS);
-        // Fill map with word frequencies from input
-        fillMap(countMap, separators, input);
+        // Fill counter with word frequencies from input
+        fillMap(counts, separators, input);
+        // Copy the counts into a map, boxing each count once per word
+        Map<String, Integer> countMap = new Map1L<>();
+        for (String word : counts) {
+            countMap.add(word, counts.count(word));
+        }
         // Sort and output top N words to HTML
         doubleSort(output, n, countMap);
     }
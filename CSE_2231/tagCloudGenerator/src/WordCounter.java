@@ -0,0 +1,187 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Counts occurrences of words without boxing. Words are kept in an
+ * open-addressing hash table with linear probing, and their counts in a
+ * parallel {@code int} array, so counting an occurrence of a word already seen
+ * allocates nothing.
+ *
+ * @author Spencer Qin(qin.709) and Yuxuan Wan(wan.502)
+ */
+public final class WordCounter implements Iterable<String> {
+
+    /**
+     * Initial number of slots; must be a power of 2.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Words, indexed by slot; null marks an empty slot.
+     */
+    private String[] words;
+
+    /**
+     * Number of occurrences of the word in the same slot.
+     */
+    private int[] counts;
+
+    /**
+     * Number of different words counted.
+     */
+    private int size;
+
+    /**
+     * No-argument constructor.
+     */
+    public WordCounter() {
+        this.clear();
+    }
+
+    /**
+     * Mixes the high bits of {@code hash} into the low ones, which are the only
+     * ones used to pick a slot in a power-of-2 sized table.
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the slot holding {@code word}, or the empty slot where it would
+     * be added.
+     *
+     * @param word
+     *            the word to look for
+     * @return the slot for {@code word}
+     */
+    private int findSlot(String word) {
+        int mask = this.words.length - 1;
+        int slot = spread(word.hashCode()) & mask;
+        while (this.words[slot] != null && !this.words[slot].equals(word)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the number of slots, moving every word and its count.
+     */
+    private void grow() {
+        String[] oldWords = this.words;
+        int[] oldCounts = this.counts;
+        this.words = new String[2 * oldWords.length];
+        this.counts = new int[2 * oldCounts.length];
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = this.findSlot(oldWords[i]);
+                this.words[slot] = oldWords[i];
+                this.counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Removes all words.
+     */
+    public void clear() {
+        this.words = new String[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Counts one more occurrence of {@code word}.
+     *
+     * @param word
+     *            the word seen
+     */
+    public void increment(String word) {
+        assert word != null : "Violation of: word is not null";
+
+        int slot = this.findSlot(word);
+        if (this.words[slot] == null) {
+            // Keep at least half of the slots empty so probe runs stay short
+            if (2 * (this.size + 1) > this.words.length) {
+                this.grow();
+                slot = this.findSlot(word);
+            }
+            this.words[slot] = word;
+            this.size++;
+        }
+        this.counts[slot]++;
+    }
+
+    /**
+     * Returns the number of occurrences of {@code word} counted so far.
+     *
+     * @param word
+     *            the word to look up
+     * @return the count of {@code word}, 0 if it has not been seen
+     */
+    public int count(String word) {
+        assert word != null : "Violation of: word is not null";
+
+        return this.counts[this.findSlot(word)];
+    }
+
+    /**
+     * Returns the number of different words counted.
+     *
+     * @return the number of different words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns an iterator over the different words counted, in no particular
+     * order.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new WordIterator();
+    }
+
+    /**
+     * Iterator over the occupied slots of {@code words}.
+     */
+    private final class WordIterator implements Iterator<String> {
+
+        /**
+         * Number of words returned so far.
+         */
+        private int numberSeen = 0;
+
+        /**
+         * Slot at which to look for the next word.
+         */
+        private int currentSlot = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < WordCounter.this.size;
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while (WordCounter.this.words[this.currentSlot] == null) {
+                this.currentSlot++;
+            }
+            this.numberSeen++;
+            String word = WordCounter.this.words[this.currentSlot];
+            this.currentSlot++;
+            return word;
+        }
+
+    }
+
+}